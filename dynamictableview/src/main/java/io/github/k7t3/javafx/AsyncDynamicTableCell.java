@@ -0,0 +1,191 @@
+package io.github.k7t3.javafx;
+
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * <p>表示する内容をバックグラウンドで読み込む{@link DynamicTableView}のセルクラスです。</p>
+ * <p>
+ *     アイテムが割り当てられると{@link #onLoading(Object)}を呼び出したあと{@link #loadAsync(Object)}で読み込みを開始し、
+ *     読み込みが終わるとFXアプリケーションスレッドで{@link #applyLoaded(Object, Object)}を呼び出します。
+ *     読み込みが終わる前にセルが別のアイテムに再利用されたときは読み込みをキャンセルし、
+ *     遅れて届いた結果は反映しません。
+ * </p>
+ * @param <T> 表示するデータオブジェクト
+ * @param <R> 読み込む内容
+ */
+public abstract class AsyncDynamicTableCell<T, R> extends DynamicTableCell<T> {
+
+    private static final System.Logger LOGGER = System.getLogger(AsyncDynamicTableCell.class.getName());
+
+    public AsyncDynamicTableCell() {
+        super();
+    }
+
+    private ObjectProperty<Executor> executor;
+
+    /**
+     * 読み込みに使う{@link Executor}を返す。
+     * 既定では{@link DynamicTableView}の既定のスレッドプールが割り当てられる。
+     * @return 読み込みに使うExecutor
+     */
+    public Executor getExecutor() {
+        if (executor == null) {
+            return DynamicTableView.getDefaultExecutor();
+        }
+        return executor.get();
+    }
+
+    /**
+     * 読み込みに使う{@link Executor}を表すプロパティ。
+     * @return 読み込みに使うExecutorを表すプロパティ
+     */
+    public ObjectProperty<Executor> executorProperty() {
+        if (executor == null) {
+            executor = new SimpleObjectProperty<>(DynamicTableView.getDefaultExecutor());
+        }
+        return executor;
+    }
+
+    /**
+     * 読み込みに使う{@link Executor}を割り当てる。
+     * @param executor 読み込みに使うExecutor
+     */
+    public void setExecutor(Executor executor) {
+        executorProperty().set(executor);
+    }
+
+    /**
+     * 読み込み中のアイテム
+     */
+    private T loadingItem;
+
+    /**
+     * 読み込み中の処理
+     */
+    private CompletionStage<R> loading;
+
+    /**
+     * アイテムの内容の読み込みを開始します。FXアプリケーションスレッドで呼び出されます。
+     * <p>
+     *     重い処理は{@link #getExecutor()}などで別のスレッドで行い、その完了を表す{@link CompletionStage}を返します。
+     *     返した{@link CompletionStage}が{@link Future}でもあるときは、セルが再利用されたときに
+     *     {@link Future#cancel(boolean)}でキャンセルされます。
+     * </p>
+     * @param item 表示するアイテム
+     * @return 読み込みの完了を表すCompletionStage
+     */
+    protected abstract CompletionStage<R> loadAsync(T item);
+
+    /**
+     * 読み込んだ内容をセルに反映します。FXアプリケーションスレッドで、
+     * セルがまだ同じアイテムを表示しているときだけ呼び出されます。
+     * @param item 表示しているアイテム
+     * @param loaded 読み込んだ内容
+     */
+    protected abstract void applyLoaded(T item, R loaded);
+
+    /**
+     * 読み込みを開始する前に呼び出されます。読み込み中の表示に切り替えるときに使います。
+     * 規定では何も処理しません。
+     * @param item 表示するアイテム
+     */
+    protected void onLoading(T item) {
+        // no-op
+    }
+
+    /**
+     * 読み込みに失敗したときに、セルがまだ同じアイテムを表示していれば呼び出されます。
+     * 規定ではログを出力します。
+     * @param item 表示しているアイテム
+     * @param error 発生した例外
+     */
+    protected void onLoadFailed(T item, Throwable error) {
+        LOGGER.log(System.Logger.Level.WARNING, "failed to load cell content", error);
+    }
+
+    /**
+     * 読み込み中かを返します。
+     * @return 読み込み中のときはtrue
+     */
+    public boolean isLoading() {
+        return loading != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void updateItem(T item) {
+        // 同じアイテムを読み込んでいる途中なら、その結果を待つ
+        if (loading != null && loadingItem == item) {
+            return;
+        }
+
+        cancelLoading();
+        onLoading(item);
+
+        var stage = loadAsync(item);
+        if (stage == null) {
+            return;
+        }
+
+        loadingItem = item;
+        loading = stage;
+
+        stage.whenComplete((loaded, error) -> {
+            if (Platform.isFxApplicationThread()) {
+                complete(stage, item, loaded, error);
+            } else {
+                Platform.runLater(() -> complete(stage, item, loaded, error));
+            }
+        });
+    }
+
+    private void complete(CompletionStage<R> stage, T item, R loaded, Throwable error) {
+        // 別のアイテムに再利用されたあとに届いた結果は捨てる
+        if (loading != stage) {
+            return;
+        }
+
+        loading = null;
+        loadingItem = null;
+
+        if (isEmpty() || getItem() != item) {
+            return;
+        }
+
+        if (error != null) {
+            onLoadFailed(item, error);
+        } else {
+            applyLoaded(item, loaded);
+        }
+    }
+
+    private void cancelLoading() {
+        var stage = loading;
+        loading = null;
+        loadingItem = null;
+
+        if (stage instanceof Future) {
+            ((Future<?>) stage).cancel(true);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void updateItem(T item, boolean empty) {
+        // 空になったときや、簡易に表示したまま別のアイテムに再利用されたときは読み込みをキャンセルする
+        if (item == null || empty || (loading != null && loadingItem != item)) {
+            cancelLoading();
+        }
+        super.updateItem(item, empty);
+    }
+}
@@ -0,0 +1,83 @@
+package io.github.k7t3.javafx;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 破棄した列のセルを、ほかの列で再利用するために保持するプール。
+ * <p>
+ *     セルは生成したセルファクトリごとに保持し、同じセルファクトリを使う列にだけ渡す。
+ *     セルに作成されたビューもそのまま再利用される。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class CellPool<T> {
+
+    private final Map<Supplier<DynamicTableCell<T>>, Deque<DynamicTableCell<T>>> pools = new HashMap<>();
+
+    private int size = 0;
+
+    private int maxSize;
+
+    CellPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        if (maxSize < size) {
+            clear();
+        }
+    }
+
+    /**
+     * 指定のセルファクトリで生成したセルを取り出す。
+     * @param factory セルファクトリ。既定のセルのときはnull
+     * @return 保持しているセル。ないときはnull
+     */
+    DynamicTableCell<T> poll(Supplier<DynamicTableCell<T>> factory) {
+        var pool = pools.get(factory);
+        if (pool == null) {
+            return null;
+        }
+
+        while (!pool.isEmpty()) {
+            var cell = pool.pollLast();
+            size--;
+
+            // 行のスキンがまだ取り外していないセルは渡さない
+            if (cell.getParent() == null) {
+                return cell;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * セルを保持する。
+     * @param factory セルを生成したセルファクトリ。既定のセルのときはnull
+     * @param cell セル
+     * @return 保持したときはtrue。プールがいっぱいのときはfalse
+     */
+    boolean offer(Supplier<DynamicTableCell<T>> factory, DynamicTableCell<T> cell) {
+        if (maxSize <= size) {
+            return false;
+        }
+
+        pools.computeIfAbsent(factory, k -> new ArrayDeque<>()).addLast(cell);
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        pools.clear();
+        size = 0;
+    }
+}
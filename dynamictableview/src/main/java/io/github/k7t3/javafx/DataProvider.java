@@ -0,0 +1,30 @@
+package io.github.k7t3.javafx;
+
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * {@link DynamicTableView}に表示する要素を、必要になった範囲だけ読み込む処理。
+ * <p>
+ *     {@link DynamicTableView#setDataProvider(DataProvider)}で割り当てると、まず要素の総数を読み込み、
+ *     表示している行とスクロールしている方向の先の行を含むページだけを読み込む。
+ *     どちらもFXアプリケーションスレッドから呼び出されるため、読み込みはバックグラウンドで行い、すぐに戻ること。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+public interface DataProvider<T> {
+
+    /**
+     * 要素の総数を読み込む。
+     * @return 要素の総数
+     */
+    CompletionStage<Integer> fetchCount();
+
+    /**
+     * 指定の範囲の要素を読み込む。
+     * @param offset 読み込む先頭の要素のインデックス
+     * @param limit 読み込む要素の数
+     * @return 読み込んだ要素。{@code limit}より少ないときは、足りない要素をnullとして扱う
+     */
+    CompletionStage<List<T>> fetchPage(int offset, int limit);
+}
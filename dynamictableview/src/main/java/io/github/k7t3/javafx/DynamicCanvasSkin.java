@@ -0,0 +1,405 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.event.EventHandler;
+import javafx.geometry.Orientation;
+import javafx.geometry.VPos;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.paint.Color;
+
+import java.util.BitSet;
+
+/**
+ * 表示されている要素を一つの{@link Canvas}に描画するスキン。
+ * <p>
+ *     セルを生成せず、要素ごとに{@link TilePainter}でタイルを描画する。タイルの位置は
+ *     {@link TableDataModel}の列数から求めるため、行のモデルは購読しない。
+ *     要素の内容や選択状態が変わったときは表示されているタイルのうち変わったものだけを描画し直し、
+ *     スクロールしたときや大きさが変わったときは表示されている範囲を描画し直す。
+ *     描画はパルスごとにまとめて行う。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ * @see RenderMode#CANVAS
+ */
+class DynamicCanvasSkin<T> extends DynamicTableViewSkinBase<T> {
+
+    private static final Color SELECTION_FILL = Color.web("#0096C9");
+
+    private static final double TEXT_PADDING = 4;
+
+    /**
+     * {@link DynamicTableView#getTilePainter()}がnullのときに使う、要素の文字列を描画する処理
+     */
+    private final TilePainter<T> defaultPainter = (gc, item, width, height, selected) -> {
+        if (selected) {
+            gc.setFill(SELECTION_FILL);
+            gc.fillRect(0, 0, width, height);
+            gc.setFill(Color.WHITE);
+        } else {
+            gc.setFill(Color.BLACK);
+        }
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText(String.valueOf(item), TEXT_PADDING, height / 2, Math.max(1, width - TEXT_PADDING * 2));
+    };
+
+    private final Canvas canvas = new Canvas();
+
+    private final ScrollBar scrollBar = new ScrollBar();
+
+    private Node placeHolder;
+
+    /**
+     * 描画し直す要素インデックス。表示されている範囲のものだけを保持する。
+     */
+    private final BitSet dirtyItems = new BitSet();
+
+    /**
+     * 表示されている範囲をすべて描画し直すときはtrue
+     */
+    private boolean dirtyAll = true;
+
+    private final Runnable paint = this::paint;
+
+    private final ListChangeListener<TableDataRowModel<T>> rowsListener = c -> updateRowCount();
+
+    private final ListChangeListener<Integer> selectionListener = this::selectionChanged;
+
+    private final EventHandler<KeyEvent> keyHandler = this::navigate;
+
+    private final EventHandler<MouseEvent> mouseHandler = e -> itemPressed(canvasIndexAt(e.getX(), e.getY()), e);
+
+    private final EventHandler<ScrollEvent> scrollHandler = e -> {
+        scrollTo(scrollBar.getValue() - e.getDeltaY());
+        e.consume();
+    };
+
+    public DynamicCanvasSkin(DynamicTableView<T> control) {
+        super(control);
+        initCanvas();
+        fitColumnCount();
+    }
+
+    private void initCanvas() {
+        scrollBar.setOrientation(Orientation.VERTICAL);
+        getChildren().addAll(canvas, scrollBar);
+
+        canvas.addEventHandler(MouseEvent.MOUSE_PRESSED, mouseHandler);
+        canvas.addEventHandler(ScrollEvent.SCROLL, scrollHandler);
+
+        control.getDataModel().getRows().addListener(rowsListener);
+        control.getSelectionModel().getSelectedIndices().addListener(selectionListener);
+        control.addEventHandler(KeyEvent.KEY_PRESSED, keyHandler);
+
+        registerChangeListener(scrollBar.valueProperty(), ob -> repaintAll());
+        registerChangeListener(control.tilePainterProperty(), ob -> repaintAll());
+        registerChangeListener(control.cellWidthProperty(), ob -> relayout());
+        registerChangeListener(control.cellHeightProperty(), ob -> relayout());
+
+        updatePlaceHolder();
+        registerChangeListener(control.placeHolderProperty(), ob -> updatePlaceHolder());
+
+        updateRowCount();
+    }
+
+    private double getTileWidth() {
+        return control.getCellWidth();
+    }
+
+    private double getTileHeight() {
+        double cellHeight = control.getCellHeight();
+        return 0 < cellHeight ? cellHeight : control.getCellWidth();
+    }
+
+    private int getFirstVisibleRow() {
+        return (int) (scrollBar.getValue() / getTileHeight());
+    }
+
+    /**
+     * 表示されている最後の行インデックス(この値を含む)を返す。
+     */
+    private int getLastVisibleRow() {
+        int rowCount = control.getDataModel().getRowCount();
+        int last = (int) Math.ceil((scrollBar.getValue() + canvas.getHeight()) / getTileHeight()) - 1;
+        return Math.min(rowCount - 1, last);
+    }
+
+    private void updateRowCount() {
+        if (placeHolder != null) {
+            placeHolder.setVisible(control.getDataModel().getRowCount() == 0);
+        }
+        relayout();
+    }
+
+    private void updatePlaceHolder() {
+        if (placeHolder != null) {
+            getChildren().remove(placeHolder);
+        }
+
+        placeHolder = control.getPlaceHolder();
+
+        if (placeHolder != null) {
+            placeHolder.setVisible(control.getDataModel().getRowCount() == 0);
+            getChildren().add(placeHolder);
+        }
+    }
+
+    /**
+     * スクロールできる範囲を計算し直し、すべてを描画し直す。
+     */
+    private void relayout() {
+        control.requestLayout();
+        repaintAll();
+    }
+
+    private void scrollTo(double value) {
+        scrollBar.setValue(Math.max(0, Math.min(scrollBar.getMax(), value)));
+    }
+
+    private void repaintAll() {
+        dirtyAll = true;
+        dirtyItems.clear();
+        pulseScheduler.schedule(paint);
+    }
+
+    /**
+     * 指定の範囲の要素のうち、表示されているものを描画し直す。
+     * @param from 要素インデックスの先頭
+     * @param to 要素インデックスの末尾(この値を含まない)
+     */
+    private void markDirty(int from, int to) {
+        int columnCount = control.getDataModel().getColumnCount();
+        if (dirtyAll || columnCount < 1) {
+            return;
+        }
+
+        from = Math.max(from, getFirstVisibleRow() * columnCount);
+        to = Math.min(to, (getLastVisibleRow() + 1) * columnCount);
+        if (from < to) {
+            dirtyItems.set(from, to);
+            pulseScheduler.schedule(paint);
+        }
+    }
+
+    private void selectionChanged(ListChangeListener.Change<? extends Integer> c) {
+        int visibleCount = (getLastVisibleRow() - getFirstVisibleRow() + 1) * control.getDataModel().getColumnCount();
+
+        while (c.next()) {
+            // 表示されているタイルより多く変わったときは、一つずつ調べずにすべてを描画し直す
+            if (c.wasPermutated() || visibleCount < c.getAddedSize() + c.getRemovedSize()) {
+                repaintAll();
+                return;
+            }
+
+            for (var index : c.getRemoved()) {
+                markDirty(index, index + 1);
+            }
+            if (c.wasAdded()) {
+                for (var index : c.getAddedSubList()) {
+                    markDirty(index, index + 1);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void onItemsChanged(int from, int to, BitSet updatedItems, boolean refreshAll) {
+        if (refreshAll) {
+            repaintAll();
+            return;
+        }
+
+        markDirty(from, to);
+        for (int i = updatedItems.nextSetBit(0); 0 <= i; i = updatedItems.nextSetBit(i + 1)) {
+            markDirty(i, i + 1);
+        }
+    }
+
+    /**
+     * 描画し直す必要のあるタイルを描画する。
+     */
+    private void paint() {
+        pulseScheduler.cancel(paint);
+
+        var gc = canvas.getGraphicsContext2D();
+        boolean all = dirtyAll;
+        dirtyAll = false;
+
+        if (all) {
+            gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        }
+
+        var dataModel = control.getDataModel();
+        int columnCount = dataModel.getColumnCount();
+        double width = getTileWidth();
+        double height = getTileHeight();
+
+        if (columnCount < 1 || width <= 0 || height <= 0 || dataModel.getItemCount() == 0) {
+            dirtyItems.clear();
+            return;
+        }
+
+        var painter = control.getTilePainter();
+        if (painter == null) {
+            painter = defaultPainter;
+        }
+
+        int firstIndex = getFirstVisibleRow() * columnCount;
+        int lastIndex = (getLastVisibleRow() + 1) * columnCount;
+
+        if (all) {
+            int end = Math.min(lastIndex, dataModel.getItemCount());
+            for (int i = firstIndex; i < end; i++) {
+                paintTile(gc, painter, i, columnCount, width, height);
+            }
+        } else {
+            for (int i = dirtyItems.nextSetBit(firstIndex); 0 <= i && i < lastIndex; i = dirtyItems.nextSetBit(i + 1)) {
+                paintTile(gc, painter, i, columnCount, width, height);
+            }
+        }
+
+        dirtyItems.clear();
+    }
+
+    private void paintTile(GraphicsContext gc, TilePainter<T> painter, int index, int columnCount, double width, double height) {
+        int row = index / columnCount;
+        double x = (index - row * columnCount) * width;
+        double y = row * height - scrollBar.getValue();
+
+        gc.clearRect(x, y, width, height);
+
+        // 取り除かれた要素のタイルは消去するだけ
+        var dataModel = control.getDataModel();
+        if (dataModel.getItemCount() <= index) {
+            return;
+        }
+
+        // 読み込み中の要素は消去したままにし、ページを読み込ませる
+        var item = dataModel.getItem(index);
+        if (item == null && control.isItemPending(index)) {
+            control.requestItems(index, index + 1);
+            return;
+        }
+
+        var selectionModel = control.getSelectionModel();
+        boolean selected = !selectionModel.isEmpty() && selectionModel.isSelected(index);
+
+        gc.save();
+        gc.translate(x, y);
+        painter.paint(gc, item, width, height, selected);
+        gc.restore();
+    }
+
+    /**
+     * キャンバスの座標にある要素インデックスを返す。
+     * @return 要素インデックス。要素がないときは-1
+     */
+    private int canvasIndexAt(double x, double y) {
+        var dataModel = control.getDataModel();
+        int columnCount = dataModel.getColumnCount();
+        double width = getTileWidth();
+        double height = getTileHeight();
+        if (columnCount < 1 || width <= 0 || height <= 0 || x < 0 || y < 0) {
+            return -1;
+        }
+
+        int column = (int) (x / width);
+        if (columnCount <= column) {
+            return -1;
+        }
+
+        int row = (int) ((y + scrollBar.getValue()) / height);
+        int index = row * columnCount + column;
+        return index < dataModel.getItemCount() ? index : -1;
+    }
+
+    /**
+     * コントロールの座標にある要素インデックスを返す。
+     * @param x コントロールのx座標
+     * @param y コントロールのy座標
+     * @return 要素インデックス。要素がないときは-1
+     */
+    int indexAt(double x, double y) {
+        var point = canvas.parentToLocal(x, y);
+        return canvasIndexAt(point.getX(), point.getY());
+    }
+
+    @Override
+    protected void onColumnCountChanged(int columnCount) {
+        relayout();
+    }
+
+    @Override
+    void scrollToRow(int rowIndex) {
+        double height = getTileHeight();
+        double y = rowIndex * height;
+        double value = scrollBar.getValue();
+
+        if (y < value) {
+            scrollTo(y);
+        } else if (value + canvas.getHeight() < y + height) {
+            scrollTo(y + height - canvas.getHeight());
+        }
+    }
+
+    @Override
+    protected void layoutChildren(double contentX, double contentY, double contentWidth, double contentHeight) {
+        double totalHeight = control.getDataModel().getRowCount() * getTileHeight();
+
+        boolean scrollable = contentHeight < totalHeight;
+        double barWidth = scrollable ? snapSizeX(scrollBar.prefWidth(-1)) : 0;
+        double canvasWidth = Math.max(0, contentWidth - barWidth);
+
+        scrollBar.setVisible(scrollable);
+        if (scrollable) {
+            scrollBar.resizeRelocate(contentX + canvasWidth, contentY, barWidth, contentHeight);
+        }
+
+        double max = Math.max(0, totalHeight - contentHeight);
+        scrollBar.setMax(max);
+        scrollBar.setVisibleAmount(scrollable ? max * contentHeight / totalHeight : max);
+        scrollBar.setUnitIncrement(getTileHeight());
+        scrollBar.setBlockIncrement(contentHeight);
+        if (max < scrollBar.getValue()) {
+            scrollBar.setValue(max);
+        }
+
+        canvas.relocate(contentX, contentY);
+        if (canvas.getWidth() != canvasWidth || canvas.getHeight() != contentHeight) {
+            canvas.setWidth(canvasWidth);
+            canvas.setHeight(contentHeight);
+            dirtyAll = true;
+        }
+
+        // 大きさが変わったときは次のパルスを待たずに描画する
+        if (dirtyAll) {
+            paint();
+        }
+
+        if (placeHolder != null && placeHolder.isVisible()) {
+            placeHolder.resizeRelocate(contentX, contentY, contentWidth, contentHeight);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        control.getDataModel().getRows().removeListener(rowsListener);
+        control.getSelectionModel().getSelectedIndices().removeListener(selectionListener);
+        control.removeEventHandler(KeyEvent.KEY_PRESSED, keyHandler);
+        canvas.removeEventHandler(MouseEvent.MOUSE_PRESSED, mouseHandler);
+        canvas.removeEventHandler(ScrollEvent.SCROLL, scrollHandler);
+        pulseScheduler.cancel(paint);
+
+        getChildren().removeAll(canvas, scrollBar);
+        if (placeHolder != null) {
+            getChildren().remove(placeHolder);
+        }
+
+        super.dispose();
+    }
+}
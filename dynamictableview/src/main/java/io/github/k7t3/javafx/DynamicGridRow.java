@@ -0,0 +1,253 @@
+package io.github.k7t3.javafx;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.Skin;
+import javafx.scene.control.SkinBase;
+import javafx.scene.control.skin.CellSkinBase;
+import javafx.scene.input.MouseEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link DynamicGridViewSkin}の一行分のセルを横に並べるコンテナ。
+ * <p>
+ *     {@link javafx.scene.control.TableRow}と異なり、列ごとのセルの管理や選択状態の管理を行わず、
+ *     行のプロパティの値をそのままセルに反映する。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class DynamicGridRow<T> extends IndexedCell<TableDataRowModel<T>> {
+
+    private static final String DEFAULT_STYLE_CLASS = "dynamic-grid-row";
+
+    private final DynamicGridViewSkin<T> gridSkin;
+
+    private final DynamicTableView<T> control;
+
+    private final List<DynamicTableCell<T>> cells = new ArrayList<>();
+
+    /**
+     * 列インデックスを添字とする、セルに値を反映するリスナ
+     */
+    private final List<InvalidationListener> listeners = new ArrayList<>();
+
+    /**
+     * 現在購読している行のプロパティ
+     */
+    private final List<ObservableValue<T>> boundValues = new ArrayList<>();
+
+    DynamicGridRow(DynamicGridViewSkin<T> gridSkin, DynamicTableView<T> control) {
+        super();
+        this.gridSkin = gridSkin;
+        this.control = control;
+        getStyleClass().setAll(DEFAULT_STYLE_CLASS);
+
+        addEventHandler(MouseEvent.MOUSE_PRESSED, e -> {
+            int columnIndex = (int) (e.getX() / control.getCellWidth());
+            if (0 <= getIndex() && columnIndex < cells.size()) {
+                gridSkin.cellPressed(getIndex(), columnIndex, e);
+            }
+        });
+    }
+
+    @Override
+    public void updateIndex(int i) {
+        super.updateIndex(i);
+        bind();
+    }
+
+    /**
+     * 現在の行インデックスの行を購読し、セルに値を反映する。
+     * 行と列数が変わっていないときは選択状態だけを反映する。
+     */
+    void bind() {
+        var dataModel = control.getDataModel();
+        var rows = dataModel.getRows();
+
+        int index = getIndex();
+        var row = 0 <= index && index < rows.size() ? rows.get(index) : null;
+        int columnCount = dataModel.getColumnCount();
+
+        if (row != null && row == getItem() && cells.size() == columnCount && boundValues.size() == columnCount) {
+            updateSelection();
+            return;
+        }
+
+        unbind();
+
+        // 表示領域の外側で用意しておいた行があれば、そのセルをそのまま取り付ける
+        var prepared = row == null ? null : gridSkin.takePreparedRow(this, index);
+        if (prepared != null) {
+            if (prepared.getItem() == row && prepared.cells.size() == columnCount) {
+                adopt(prepared, row);
+                return;
+            }
+            gridSkin.recyclePreparedRow(prepared);
+        }
+
+        ensureCells(columnCount);
+
+        updateItem(row, row == null);
+
+        if (row == null) {
+            for (var cell : cells) {
+                cell.updateGridItemIndex(-1);
+                cell.updateItem(null, true);
+                cell.updateGridSelected(false);
+            }
+            return;
+        }
+
+        for (int i = 0; i < columnCount; i++) {
+            var value = row.getProperty(i);
+            value.addListener(listeners.get(i));
+            boundValues.add(value);
+            updateCell(i);
+        }
+    }
+
+    /**
+     * 同じ行を購読している行とセルを入れ替え、セルを更新せずに行を購読する。
+     * 入れ替えたあとの行は購読を解除する。
+     * @param prepared 同じ行を購読している行
+     * @param row 行
+     */
+    private void adopt(DynamicGridRow<T> prepared, TableDataRowModel<T> row) {
+        prepared.unbind();
+
+        var own = new ArrayList<>(cells);
+        cells.clear();
+        cells.addAll(prepared.cells);
+        prepared.cells.clear();
+        prepared.cells.addAll(own);
+
+        getChildren().setAll(cells);
+        prepared.getChildren().setAll(prepared.cells);
+        ensureListeners();
+        prepared.ensureListeners();
+
+        updateItem(row, false);
+        for (int i = 0; i < cells.size(); i++) {
+            var value = row.getProperty(i);
+            value.addListener(listeners.get(i));
+            boundValues.add(value);
+        }
+
+        // 値は用意した行で反映済みのため、選択状態だけを反映する
+        updateSelection();
+        gridSkin.recyclePreparedRow(prepared);
+    }
+
+    /**
+     * 購読している行のプロパティのリスナを解除する。
+     */
+    void unbind() {
+        for (int i = 0; i < boundValues.size(); i++) {
+            boundValues.get(i).removeListener(listeners.get(i));
+        }
+        boundValues.clear();
+    }
+
+    private void ensureCells(int columnCount) {
+        if (columnCount < cells.size()) {
+
+            var removed = cells.subList(columnCount, cells.size());
+            getChildren().removeAll(removed);
+            removed.clear();
+
+        } else {
+
+            for (int i = cells.size(); i < columnCount; i++) {
+                var cell = control.createCell();
+
+                // TableViewに属さないセルのため、TableCellの操作を行わないスキンを割り当てる
+                cell.setSkin(new CellSkinBase<>(cell));
+
+                cells.add(cell);
+            }
+            getChildren().setAll(cells);
+
+        }
+        ensureListeners();
+    }
+
+    /**
+     * セルと同じ数だけ、セルに値を反映するリスナを用意する。
+     */
+    private void ensureListeners() {
+        if (cells.size() < listeners.size()) {
+            listeners.subList(cells.size(), listeners.size()).clear();
+        }
+        for (int i = listeners.size(); i < cells.size(); i++) {
+            int columnIndex = i;
+            listeners.add(ob -> updateCell(columnIndex));
+        }
+    }
+
+    private void updateCell(int columnIndex) {
+        var value = boundValues.get(columnIndex).getValue();
+        var cell = cells.get(columnIndex);
+        cell.updateGridItemIndex(getIndex() * control.getDataModel().getColumnCount() + columnIndex);
+        cell.updateItem(value, value == null);
+        cell.updateGridSelected(value != null && gridSkin.isItemSelected(getIndex(), columnIndex));
+    }
+
+    /**
+     * セルの選択状態を反映する。
+     */
+    void updateSelection() {
+        for (int i = 0; i < boundValues.size(); i++) {
+            var selected = boundValues.get(i).getValue() != null && gridSkin.isItemSelected(getIndex(), i);
+            cells.get(i).updateGridSelected(selected);
+        }
+    }
+
+    @Override
+    protected Skin<?> createDefaultSkin() {
+        return new DynamicGridRowSkin();
+    }
+
+    /**
+     * セルをセルの幅で左から並べるスキン
+     */
+    private class DynamicGridRowSkin extends SkinBase<DynamicGridRow<T>> {
+
+        DynamicGridRowSkin() {
+            super(DynamicGridRow.this);
+        }
+
+        @Override
+        protected void layoutChildren(double contentX, double contentY, double contentWidth, double contentHeight) {
+            double cellWidth = control.getCellWidth();
+
+            double x = contentX;
+            for (var cell : cells) {
+                cell.resizeRelocate(x, contentY, cellWidth, contentHeight);
+                x += cellWidth;
+            }
+        }
+
+        @Override
+        protected double computePrefWidth(double height, double topInset, double rightInset, double bottomInset, double leftInset) {
+            return leftInset + cells.size() * control.getCellWidth() + rightInset;
+        }
+
+        @Override
+        protected double computePrefHeight(double width, double topInset, double rightInset, double bottomInset, double leftInset) {
+            double cellHeight = control.getCellHeight();
+            if (0 < cellHeight) {
+                return topInset + cellHeight + bottomInset;
+            }
+
+            double cellWidth = control.getCellWidth();
+            double height = 0;
+            for (var cell : cells) {
+                height = Math.max(height, cell.prefHeight(cellWidth));
+            }
+            return topInset + height + bottomInset;
+        }
+    }
+}
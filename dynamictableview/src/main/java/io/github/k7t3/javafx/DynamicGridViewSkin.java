@@ -0,0 +1,310 @@
+package io.github.k7t3.javafx;
+
+import javafx.beans.InvalidationListener;
+import javafx.collections.ListChangeListener;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * {@link VirtualFlow}の行にセルを直接並べて要素を表示するスキン。
+ * <p>
+ *     {@link javafx.scene.control.TableView}の行や列を使わないため、
+ *     表示されるノードは行のコンテナとセルだけになる。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ * @see RenderMode#VIRTUAL_FLOW
+ */
+class DynamicGridViewSkin<T> extends DynamicTableViewSkinBase<T> {
+
+    private final GridFlow<T> flow = new GridFlow<>();
+
+    /**
+     * フローが生成した行。フローが破棄した行は自動的に取り除かれる。
+     */
+    private final Set<DynamicGridRow<T>> gridRows = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private Node placeHolder;
+
+    public DynamicGridViewSkin(DynamicTableView<T> control) {
+        super(control);
+        initFlow();
+        fitColumnCount();
+    }
+
+    private final ListChangeListener<TableDataRowModel<T>> rowsListener = c -> updateCellCount();
+
+    private final InvalidationListener selectionListener = ob -> updateSelection();
+
+    private final EventHandler<KeyEvent> keyHandler = this::navigate;
+
+    private final Runnable updateOverscan = this::updateOverscan;
+
+    /**
+     * 表示領域の前後の行のために用意した、フローに属さない行。キーは行インデックス。
+     */
+    private final Map<Integer, DynamicGridRow<T>> preparedRows = new HashMap<>();
+
+    /**
+     * 用意する範囲から外れ、次に用意する行として再利用する行
+     */
+    private final List<DynamicGridRow<T>> spareRows = new ArrayList<>();
+
+    private void initFlow() {
+        flow.setCellFactory(f -> {
+            var row = new DynamicGridRow<>(this, control);
+            gridRows.add(row);
+            return row;
+        });
+        getChildren().add(flow);
+
+        control.getDataModel().getRows().addListener(rowsListener);
+        control.getSelectionModel().getSelectedIndices().addListener(selectionListener);
+        control.addEventHandler(KeyEvent.KEY_PRESSED, keyHandler);
+
+        updateFixedCellSize();
+        registerChangeListener(control.cellHeightProperty(), ob -> updateFixedCellSize());
+        registerChangeListener(control.cellFactoryProperty(), ob -> recreateRows());
+
+        updatePlaceHolder();
+        registerChangeListener(control.placeHolderProperty(), ob -> updatePlaceHolder());
+
+        // 表示されている行が変わったら前後の行を用意し直す
+        registerChangeListener(flow.positionProperty(), ob -> pulseScheduler.schedule(updateOverscan));
+        registerChangeListener(control.overscanProperty(), ob -> pulseScheduler.schedule(updateOverscan));
+
+        scrollTracker.attach(flow);
+
+        updateCellCount();
+    }
+
+    private void updateCellCount() {
+        int rowCount = control.getDataModel().getRowCount();
+        flow.setCellCount(rowCount);
+
+        if (placeHolder != null) {
+            placeHolder.setVisible(rowCount == 0);
+        }
+
+        pulseScheduler.schedule(updateOverscan);
+    }
+
+    private void updateFixedCellSize() {
+        double cellHeight = control.getCellHeight();
+        flow.setFixedCellSize(0 < cellHeight ? cellHeight : Region.USE_COMPUTED_SIZE);
+    }
+
+    private void updatePlaceHolder() {
+        if (placeHolder != null) {
+            getChildren().remove(placeHolder);
+        }
+
+        placeHolder = control.getPlaceHolder();
+
+        if (placeHolder != null) {
+            placeHolder.setVisible(control.getDataModel().getRowCount() == 0);
+            getChildren().add(placeHolder);
+        }
+    }
+
+    /**
+     * すべての行のセルを作り直す。
+     */
+    private void recreateRows() {
+        for (var row : new ArrayList<>(gridRows)) {
+            row.unbind();
+        }
+        gridRows.clear();
+        discardPreparedRows();
+        flow.recreate();
+
+        pulseScheduler.schedule(updateOverscan);
+    }
+
+    /**
+     * 表示されている行の前後{@link DynamicTableView#getOverscan()}行について、フローに属さない行を用意する。
+     * <p>
+     *     用意した行は表示中の行と同様に行を購読してセルを更新しておき、
+     *     フローがその行インデックスの行を表示するときに{@link #takePreparedRow(DynamicGridRow, int)}でセルを引き渡す。
+     * </p>
+     */
+    private void updateOverscan() {
+        int overscan = Math.max(0, control.getOverscan());
+        var first = flow.getFirstVisibleCell();
+        var last = flow.getLastVisibleCell();
+
+        int firstVisible = first == null ? 0 : first.getIndex();
+        int lastVisible = last == null ? -1 : last.getIndex();
+        int from = Math.max(0, firstVisible - overscan);
+        int to = Math.min(control.getDataModel().getRowCount(), lastVisible + 1 + overscan);
+        if (first == null || last == null || overscan == 0) {
+            to = from;
+        }
+
+        // 範囲から外れた行と、フローが表示している行は再利用するために取っておく
+        for (var it = preparedRows.entrySet().iterator(); it.hasNext(); ) {
+            var entry = it.next();
+            int rowIndex = entry.getKey();
+            if (rowIndex < from || to <= rowIndex || (firstVisible <= rowIndex && rowIndex <= lastVisible)) {
+                it.remove();
+                recyclePreparedRow(entry.getValue());
+            }
+        }
+
+        for (int i = from; i < firstVisible; i++) {
+            prepareRow(i);
+        }
+        for (int i = lastVisible + 1; i < to; i++) {
+            prepareRow(i);
+        }
+    }
+
+    private void prepareRow(int rowIndex) {
+        if (preparedRows.containsKey(rowIndex)) {
+            return;
+        }
+
+        var row = spareRows.isEmpty() ? new DynamicGridRow<>(this, control) : spareRows.remove(spareRows.size() - 1);
+        row.updateIndex(rowIndex);
+        preparedRows.put(rowIndex, row);
+    }
+
+    /**
+     * フローの行が指定の行インデックスを表示するときに、その行のために用意した行を取り出す。
+     * @param row 表示する行
+     * @param rowIndex 行インデックス
+     * @return 用意した行。フローの行でないとき、または用意していないときはnull
+     */
+    DynamicGridRow<T> takePreparedRow(DynamicGridRow<T> row, int rowIndex) {
+        if (preparedRows.isEmpty() || !gridRows.contains(row)) {
+            return null;
+        }
+        return preparedRows.remove(rowIndex);
+    }
+
+    /**
+     * 用意した行の購読を解除し、次に用意する行として再利用する。
+     * @param row 用意した行
+     */
+    void recyclePreparedRow(DynamicGridRow<T> row) {
+        row.unbind();
+        spareRows.add(row);
+    }
+
+    /**
+     * 用意した行をすべて破棄する。
+     */
+    private void discardPreparedRows() {
+        for (var row : preparedRows.values()) {
+            row.unbind();
+        }
+        preparedRows.clear();
+        spareRows.clear();
+    }
+
+    private void updateSelection() {
+        for (var row : new ArrayList<>(gridRows)) {
+            row.updateSelection();
+        }
+    }
+
+    /**
+     * 指定の位置の要素が選択されているかを返す。
+     * @param rowIndex 行インデックス
+     * @param columnIndex 列インデックス
+     * @return 選択されているときはtrue
+     */
+    boolean isItemSelected(int rowIndex, int columnIndex) {
+        if (control.getSelectionModel().isEmpty()) {
+            return false;
+        }
+
+        int index = rowIndex * control.getDataModel().getColumnCount() + columnIndex;
+        return index < control.getDataModel().getItemCount() && control.getSelectionModel().isSelected(index);
+    }
+
+    /**
+     * セルがクリックされたときに選択状態を変更する。
+     * @param rowIndex 行インデックス
+     * @param columnIndex 列インデックス
+     * @param e マウスイベント
+     */
+    void cellPressed(int rowIndex, int columnIndex, MouseEvent e) {
+        itemPressed(rowIndex * control.getDataModel().getColumnCount() + columnIndex, e);
+    }
+
+    @Override
+    protected void onCellSizeModeChanged(boolean fixedCellSize) {
+        // 表示しているセルの大きさのバインドを切り替えるため、行を作り直す
+        recreateRows();
+    }
+
+    @Override
+    protected void onColumnCountChanged(int columnCount) {
+        // 列数に合わせて表示されている行のセルを増減する
+        for (var row : new ArrayList<>(gridRows)) {
+            row.bind();
+        }
+        flow.requestLayout();
+
+        // 用意した行も列数に合わせて購読し直す
+        for (var row : preparedRows.values()) {
+            row.bind();
+        }
+    }
+
+    @Override
+    void scrollToRow(int rowIndex) {
+        flow.scrollTo(rowIndex);
+    }
+
+    @Override
+    protected void layoutChildren(double contentX, double contentY, double contentWidth, double contentHeight) {
+        flow.resizeRelocate(contentX, contentY, contentWidth, contentHeight);
+
+        if (placeHolder != null && placeHolder.isVisible()) {
+            placeHolder.resizeRelocate(contentX, contentY, contentWidth, contentHeight);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        control.getDataModel().getRows().removeListener(rowsListener);
+        control.getSelectionModel().getSelectedIndices().removeListener(selectionListener);
+        control.removeEventHandler(KeyEvent.KEY_PRESSED, keyHandler);
+
+        for (var row : new ArrayList<>(gridRows)) {
+            row.unbind();
+        }
+        gridRows.clear();
+        discardPreparedRows();
+
+        getChildren().remove(flow);
+        if (placeHolder != null) {
+            getChildren().remove(placeHolder);
+        }
+
+        super.dispose();
+    }
+
+    /**
+     * セルを作り直す操作を公開するフロー
+     */
+    private static final class GridFlow<T> extends VirtualFlow<DynamicGridRow<T>> {
+
+        void recreate() {
+            recreateCells();
+        }
+    }
+}
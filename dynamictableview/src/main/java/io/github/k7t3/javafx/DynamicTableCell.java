@@ -2,6 +2,7 @@ package io.github.k7t3.javafx;
 
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.css.PseudoClass;
 import javafx.scene.Node;
 import javafx.scene.control.TableCell;
 
@@ -13,6 +14,12 @@ public abstract class DynamicTableCell<T> extends TableCell<TableDataRowModel<T>
 
     private static final String DEFAULT_STYLE_CLASS = "dynamic-table-cell";
 
+    private static final PseudoClass SELECTED_PSEUDO_CLASS = PseudoClass.getPseudoClass("selected");
+
+    private static final PseudoClass SKELETON_PSEUDO_CLASS = PseudoClass.getPseudoClass("skeleton");
+
+    private static final PseudoClass PLACEHOLDER_PSEUDO_CLASS = PseudoClass.getPseudoClass("placeholder");
+
     public DynamicTableCell() {
         super();
         getStyleClass().add(DEFAULT_STYLE_CLASS);
@@ -21,6 +28,9 @@ public abstract class DynamicTableCell<T> extends TableCell<TableDataRowModel<T>
     private ReadOnlyDoubleWrapper prefCellWidth;
 
     public double getPrefCellWidth() {
+        if (isFixedCellSize()) {
+            return control.getCellWidth();
+        }
         if (prefCellWidth == null) {
             return USE_COMPUTED_SIZE;
         }
@@ -35,6 +45,11 @@ public abstract class DynamicTableCell<T> extends TableCell<TableDataRowModel<T>
         return prefCellWidth;
     }
     
+    /**
+     * セルの幅を表すプロパティ。固定サイズモードのときは更新されないため、{@link #getPrefCellWidth()}を使う。
+     * @return セルの幅を表すプロパティ
+     * @see DynamicTableView#fixedCellSizeProperty()
+     */
     public ReadOnlyDoubleProperty prefCellWidthProperty() {
         return prefCellWidthWrapper().getReadOnlyProperty();
     }
@@ -42,6 +57,9 @@ public abstract class DynamicTableCell<T> extends TableCell<TableDataRowModel<T>
     private ReadOnlyDoubleWrapper prefCellHeight;
 
     public double getPrefCellHeight() {
+        if (isFixedCellSize()) {
+            return control.getCellHeight();
+        }
         if (prefCellHeight == null) {
             return USE_COMPUTED_SIZE;
         }
@@ -56,10 +74,117 @@ public abstract class DynamicTableCell<T> extends TableCell<TableDataRowModel<T>
         return prefCellHeight;
     }
 
+    /**
+     * セルの高さを表すプロパティ。固定サイズモードのときは更新されないため、{@link #getPrefCellHeight()}を使う。
+     * @return セルの高さを表すプロパティ
+     * @see DynamicTableView#fixedCellSizeProperty()
+     */
     public ReadOnlyDoubleProperty prefCellHeightProperty() {
         return prefCellHeightWrapper().getReadOnlyProperty();
     }
 
+    /**
+     * {@link RenderMode#VIRTUAL_FLOW}で表示しているときに選択状態を反映する。
+     * TableRowを持たないセルでは{@link #updateSelected(boolean)}が無視されるため、疑似クラスだけを切り替える。
+     * @param selected 選択されているときはtrue
+     */
+    void updateGridSelected(boolean selected) {
+        pseudoClassStateChanged(SELECTED_PSEUDO_CLASS, selected);
+    }
+
+    /**
+     * このセルを表示しているコントロール
+     */
+    private DynamicTableView<T> control;
+
+    void setControl(DynamicTableView<T> control) {
+        this.control = control;
+        updateCellSizeBinding();
+    }
+
+    private boolean isFixedCellSize() {
+        return control != null && control.usesFixedCellSize();
+    }
+
+    /**
+     * セルの大きさをコントロールに合わせる。固定サイズモードのときはバインドせず、
+     * {@link #computePrefWidth(double)}と{@link #computePrefHeight(double)}でコントロールの値を返す。
+     */
+    void updateCellSizeBinding() {
+        if (control == null) {
+            return;
+        }
+
+        if (control.usesFixedCellSize()) {
+            unbindCellSize();
+        } else {
+            prefCellWidthWrapper().bind(control.cellWidthProperty());
+            prefCellHeightWrapper().bind(control.cellHeightProperty());
+        }
+    }
+
+    void unbindCellSize() {
+        if (prefCellWidth != null) {
+            prefCellWidth.unbind();
+            prefCellWidth.set(USE_COMPUTED_SIZE);
+        }
+        if (prefCellHeight != null) {
+            prefCellHeight.unbind();
+            prefCellHeight.set(USE_COMPUTED_SIZE);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double computePrefWidth(double height) {
+        if (isFixedCellSize()) {
+            return control.getCellWidth();
+        }
+        return super.computePrefWidth(height);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected double computePrefHeight(double width) {
+        if (isFixedCellSize()) {
+            return control.getCellHeight();
+        }
+        return super.computePrefHeight(width);
+    }
+
+    /**
+     * {@link RenderMode#VIRTUAL_FLOW}で表示しているときの要素インデックス
+     */
+    private int gridItemIndex = -1;
+
+    void updateGridItemIndex(int index) {
+        this.gridItemIndex = index;
+    }
+
+    /**
+     * このセルが表示している、{@link DynamicTableView#getSortedItems()}での要素インデックスを返す。
+     */
+    private int getItemIndex() {
+        if (control == null) {
+            return -1;
+        }
+        if (getTableColumn() instanceof DynamicTableColumn) {
+            int rowIndex = getIndex();
+            int columnIndex = ((DynamicTableColumn<?>) getTableColumn()).columnIndex;
+            return rowIndex < 0 ? -1 : rowIndex * control.getDataModel().getColumnCount() + columnIndex;
+        }
+        return gridItemIndex;
+    }
+
+    /**
+     * 簡易に表示しているときはtrue
+     */
+    private boolean skeleton = false;
+
     private Node view;
 
     /**
@@ -82,6 +207,73 @@ public abstract class DynamicTableCell<T> extends TableCell<TableDataRowModel<T>
         // no-op
     }
 
+    /**
+     * セルに表示するアイテムを{@link DataProvider}から読み込んでいる間に、{@link #onEmpty()}の代わりに呼び出されます。
+     * セルには疑似クラス{@code :placeholder}が設定されます。
+     * 規定では何も処理せず、スタイルシートの背景だけを表示します。
+     * @see DynamicTableView#dataProviderProperty()
+     */
+    protected void updatePlaceholder() {
+        // no-op
+    }
+
+    /**
+     * 速くスクロールしている間に、セルに割り当てられたアイテムを簡易に表示するときに呼び出されます。
+     * <p>
+     *     スクロールが止まると{@link #updateItem(Object)}が一度だけ呼び出されるため、
+     *     ここでは重い処理を避け、色や文字列だけを反映するなど最小限の処理にします。
+     *     セルには疑似クラス{@code :skeleton}が設定されます。
+     *     規定ではビューを取り外し、スタイルシートの背景だけを表示します。
+     * </p>
+     * @param item 表示するアイテム
+     * @see DynamicTableView#fastScrollVelocityProperty()
+     */
+    protected void updateSkeleton(T item) {
+        setGraphic(null);
+    }
+
+    private void setSkeleton(boolean value) {
+        if (skeleton == value) {
+            return;
+        }
+        skeleton = value;
+        pseudoClassStateChanged(SKELETON_PSEUDO_CLASS, value);
+
+        if (control != null) {
+            if (value) {
+                control.addSkeletonCell(this);
+            } else {
+                control.removeSkeletonCell(this);
+            }
+        }
+    }
+
+    /**
+     * スクロールが止まったときに、簡易に表示しているアイテムを表示し直す。
+     */
+    void finishSkeleton() {
+        if (!skeleton) {
+            return;
+        }
+        skeleton = false;
+        pseudoClassStateChanged(SKELETON_PSEUDO_CLASS, false);
+
+        var item = getItem();
+        if (item != null && !isEmpty()) {
+            render(item);
+        }
+    }
+
+    private void render(T item) {
+        if (view == null) {
+            view = createView();
+        }
+
+        updateItem(item);
+
+        setGraphic(view);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -90,17 +282,31 @@ public abstract class DynamicTableCell<T> extends TableCell<TableDataRowModel<T>
         super.updateItem(item, empty);
 
         if (item == null || empty) {
+            setSkeleton(false);
             setGraphic(null);
-            onEmpty();
+
+            // 読み込み中のアイテムは、表示している範囲のページとして読み込ませる
+            int index = getItemIndex();
+            boolean pending = control != null && control.isItemPending(index);
+            pseudoClassStateChanged(PLACEHOLDER_PSEUDO_CLASS, pending);
+            if (pending) {
+                control.requestItems(index, index + 1);
+                updatePlaceholder();
+            } else {
+                onEmpty();
+            }
             return;
         }
 
-        if (view == null) {
-            view = createView();
-        }
+        pseudoClassStateChanged(PLACEHOLDER_PSEUDO_CLASS, false);
 
-        updateItem(item);
+        if (control != null && control.isFastScrolling()) {
+            setSkeleton(true);
+            updateSkeleton(item);
+            return;
+        }
 
-        setGraphic(view);
+        setSkeleton(false);
+        render(item);
     }
 }
\ No newline at end of file
@@ -2,6 +2,9 @@ package io.github.k7t3.javafx;
 
 import javafx.scene.control.TableColumn;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Supplier;
 
 class DynamicTableColumn<T> extends TableColumn<TableDataRowModel<T>, T> {
@@ -10,6 +13,20 @@ class DynamicTableColumn<T> extends TableColumn<TableDataRowModel<T>, T> {
 
     final int columnIndex;
 
+    private static final int DEFAULT_PURGE_THRESHOLD = 64;
+
+    private int purgeThreshold = DEFAULT_PURGE_THRESHOLD;
+
+    /**
+     * この列で使っているセル
+     */
+    private final List<WeakReference<DynamicTableCell<T>>> cells = new ArrayList<>();
+
+    /**
+     * この列のセルを生成するセルファクトリ。既定のセルを使うときはnull
+     */
+    private final Supplier<DynamicTableCell<T>> factoryKey;
+
     DynamicTableColumn(DynamicTableView<T> control, int index) {
         super();
         this.control = control;
@@ -17,10 +34,12 @@ class DynamicTableColumn<T> extends TableColumn<TableDataRowModel<T>, T> {
 
         setCellValueFactory(new DynamicTableCellValueFactory<>());
 
+        factoryKey = control.getCellFactory();
+
         Supplier<DynamicTableCell<T>> factory;
-        if (control.getCellFactory() != null) {
+        if (factoryKey != null) {
 
-            factory = control.getCellFactory();
+            factory = factoryKey;
 
         } else {
 
@@ -29,12 +48,93 @@ class DynamicTableColumn<T> extends TableColumn<TableDataRowModel<T>, T> {
         }
 
         setCellFactory(column -> {
-            var cell = factory.get();
-            cell.prefCellWidthWrapper().bind(control.cellWidthProperty());
-            cell.prefCellHeightWrapper().bind(control.cellHeightProperty());
+            // 取り外された列のセルが残っていれば再利用する
+            var cell = control.getCellPool().poll(factoryKey);
+            if (cell == null) {
+                cell = factory.get();
+            }
+            cell.setControl(control);
+
+            if (purgeThreshold <= cells.size()) {
+                purgeCells();
+            }
+            cells.add(new WeakReference<>(cell));
+
             return cell;
         });
 
+        updateCellSizeMode();
+    }
+
+    /**
+     * 固定サイズモードの切り替えを、この列と列のセルに反映する。
+     * <p>
+     *     固定サイズモードでは列の幅をセルの幅に合わせておき、
+     *     列を表示するときにセルを計測して幅を決める処理を行わせない。
+     * </p>
+     */
+    void updateCellSizeMode() {
+        if (control.usesFixedCellSize()) {
+            prefWidthProperty().bind(control.cellWidthProperty());
+        } else {
+            prefWidthProperty().unbind();
+        }
+
+        for (var ref : cells) {
+            var cell = ref.get();
+            if (cell != null) {
+                cell.updateCellSizeBinding();
+            }
+        }
+    }
+
+    /**
+     * この列のセルを生成したセルファクトリが、現在のセルファクトリかを返す。
+     * @return 現在のセルファクトリのときはtrue
+     */
+    boolean isCurrentCellFactory() {
+        return factoryKey == control.getCellFactory();
+    }
+
+    /**
+     * この列で使っているセルの数を返す。
+     * @return セルの数
+     */
+    int getCellCount() {
+        purgeCells();
+        return cells.size();
+    }
+
+    private void purgeCells() {
+        cells.removeIf(ref -> ref.get() == null);
+        purgeThreshold = Math.max(DEFAULT_PURGE_THRESHOLD, cells.size() * 2);
+    }
+
+    /**
+     * 列を破棄するときに呼び出す。
+     * この列のセルはプールに戻し、ほかの列で再利用できるようにする。
+     * 破棄した列は再び取り付けない。
+     */
+    void detach() {
+        var pool = control.getCellPool();
+
+        // セルファクトリが変わっていれば、古いセルファクトリのセルは再利用しない
+        boolean reusable = isCurrentCellFactory();
+
+        for (var ref : cells) {
+            var cell = ref.get();
+            if (cell == null) {
+                continue;
+            }
+
+            cell.unbindCellSize();
+
+            if (reusable) {
+                reusable = pool.offer(factoryKey, cell);
+            }
+        }
+        cells.clear();
+        purgeThreshold = DEFAULT_PURGE_THRESHOLD;
     }
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package io.github.k7t3.javafx;
 
+import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,9 +11,23 @@ import javafx.scene.control.Control;
 import javafx.scene.control.Label;
 import javafx.scene.control.Skin;
 import javafx.scene.control.TableView;
+import javafx.util.Duration;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterators;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * 横幅に応じて動的に列数を変更するテーブルコントロール。
@@ -24,13 +39,27 @@ public class DynamicTableView<T> extends Control {
 
     private static final double DEFAULT_CELL_WIDTH = 200.0;
     private static final double DEFAULT_CELL_HEIGHT = USE_COMPUTED_SIZE;
+    private static final double DEFAULT_COLUMN_COUNT_HYSTERESIS = 0.0;
+    private static final ResizePolicy DEFAULT_RESIZE_POLICY = ResizePolicy.IMMEDIATE;
+    private static final Duration DEFAULT_RESIZE_IDLE_DELAY = Duration.millis(200);
     private static final Label DEFAULT_PLACE_HOLDER = new Label();
+    private static final RenderMode DEFAULT_RENDER_MODE = RenderMode.TABLE_VIEW;
+    private static final int DEFAULT_OVERSCAN = 1;
+    private static final int DEFAULT_CELL_POOL_SIZE = 256;
+    private static final int DEFAULT_PREFETCH_ROWS = 2;
+
+    private static final double DEFAULT_FAST_SCROLL_VELOCITY = 0;
+    private static final int DEFAULT_PAGE_SIZE = 256;
+    private static final int DEFAULT_MAX_CACHED_PAGES = 64;
 
     private TableView<TableDataRowModel<T>> tableView;
     TableView<TableDataRowModel<T>> getTableView() {
         if (tableView == null) {
             tableView = new TableView<>();
             tableView.setItems(getDataModel().getRows());
+
+            // 選択状態はDynamicTableViewSelectionModelで管理し、TableViewにはセル選択として見せる
+            tableView.setSelectionModel(new TableViewSelectionAdapter<>(tableView, getSelectionModel(), getDataModel()));
         }
         return tableView;
     }
@@ -39,7 +68,7 @@ public class DynamicTableView<T> extends Control {
     TableDataModel<T> getDataModel() {
         if (dataModel == null) {
             dataModel = new TableDataModel<>();
-            dataModel.sortedItemsProperty().bind(sortedItemsProperty());
+            dataModel.itemsProperty().bind(viewItemsProperty());
         }
         return dataModel;
     }
@@ -47,10 +76,43 @@ public class DynamicTableView<T> extends Control {
     public DynamicTableView() {
         super();
         getStyleClass().add(DEFAULT_STYLE_CLASS);
+
+        // アイテムリストが更新されたらFilterとSortedも更新する
+        // スキンが切り替えられても同じリストを使い続けるように、コントロールで管理する
+        // 選択状態は選択モデルがリストの置き換えに合わせて更新する
+        itemsProperty.addListener((ob, o, n) -> {
+            var index = getSearchIndex();
+            if (index != null) {
+                index.attach(n, getExecutor());
+            }
+            if (n == null) {
+                filteredItemsProperty.set(null);
+                sortedItemsProperty.set(null);
+                viewItemsProperty.set(null);
+            } else if (n == pagedItems) {
+                // 絞り込みと並び替えはDataProviderが行うため、要素の総数に比例する
+                // FilteredListとSortedListを経由せずにそのまま表示する
+                filteredItemsProperty.set(null);
+                sortedItemsProperty.set(null);
+                viewItemsProperty.set(n);
+            } else {
+                filteredItemsProperty.set(new FilteredList<>(n));
+                sortedItemsProperty.set(new SortedList<>(new OrderedItemList<>(getFilteredItems())));
+                viewItemsProperty.set(getSortedItems());
+            }
+        });
     }
 
     private final ObjectProperty<Supplier<DynamicTableCell<T>>> cellFactory
-            = new SimpleObjectProperty<>(null);
+            = new SimpleObjectProperty<>(null) {
+                @Override
+                protected void invalidated() {
+                    // 以前のセルファクトリで生成したセルは再利用しない
+                    if (cellPool != null) {
+                        cellPool.clear();
+                    }
+                }
+            };
 
     /**
      * 現在定義されているセルファクトリを返す。
@@ -141,6 +203,502 @@ public class DynamicTableView<T> extends Control {
         cellHeightProperty().set(cellHeight);
     }
 
+    private BooleanProperty fixedCellSize;
+
+    /**
+     * すべてのセルを同じ大きさで表示する固定サイズモードかを返す。
+     * 既定値はfalse。
+     * @return 固定サイズモードのときはtrue
+     */
+    public boolean isFixedCellSize() {
+        if (fixedCellSize == null) {
+            return false;
+        }
+        return fixedCellSize.get();
+    }
+
+    /**
+     * すべてのセルを同じ大きさで表示する固定サイズモードかを表すプロパティ。
+     * <p>
+     *     trueのときは{@link TableView#setFixedCellSize(double)}にセルの高さを割り当て、
+     *     セルの大きさは{@link #getCellWidth()}と{@link #getCellHeight()}をそのまま使う。
+     *     セルごとの大きさのバインドと、セルの内容からの大きさの計算を行わないため、
+     *     大量の行をスクロールしても行ごとの計測は発生しない。
+     *     セルの幅と高さのどちらかが0以下のときは無効になる。
+     * </p>
+     * @return 固定サイズモードかを表すプロパティ
+     */
+    public BooleanProperty fixedCellSizeProperty() {
+        if (fixedCellSize == null) {
+            fixedCellSize = new SimpleBooleanProperty(false);
+        }
+        return fixedCellSize;
+    }
+
+    /**
+     * すべてのセルを同じ大きさで表示する固定サイズモードかを割り当てる。
+     * @param fixedCellSize 固定サイズモードにするときはtrue
+     */
+    public void setFixedCellSize(boolean fixedCellSize) {
+        fixedCellSizeProperty().set(fixedCellSize);
+    }
+
+    /**
+     * 固定サイズモードが有効かを返す。
+     */
+    boolean usesFixedCellSize() {
+        return isFixedCellSize() && 0 < getCellWidth() && 0 < getCellHeight();
+    }
+
+    private DoubleProperty columnCountHysteresis;
+
+    /**
+     * 列数を変更するまでに、幅が列数の境界を超えなければならない量を返す。
+     * 既定値は0。
+     * @return 列数の境界に設ける幅
+     */
+    public double getColumnCountHysteresis() {
+        if (columnCountHysteresis == null) {
+            return DEFAULT_COLUMN_COUNT_HYSTERESIS;
+        }
+        return columnCountHysteresis.get();
+    }
+
+    /**
+     * 列数を変更するまでに、幅が列数の境界を超えなければならない量を表すプロパティ。
+     * <p>
+     *     ウィンドウの幅を変更している間に、列数の境界付近で列数が繰り返し変わるのを防ぐ。
+     *     列数を減らすまでの間は、列の一部が表示領域からはみ出すことがある。
+     * </p>
+     * @return 列数の境界に設ける幅を表すプロパティ
+     */
+    public DoubleProperty columnCountHysteresisProperty() {
+        if (columnCountHysteresis == null) {
+            columnCountHysteresis = new SimpleDoubleProperty(DEFAULT_COLUMN_COUNT_HYSTERESIS);
+        }
+        return columnCountHysteresis;
+    }
+
+    /**
+     * 列数を変更するまでに、幅が列数の境界を超えなければならない量を割り当てる。
+     * @param columnCountHysteresis 列数の境界に設ける幅
+     */
+    public void setColumnCountHysteresis(double columnCountHysteresis) {
+        columnCountHysteresisProperty().set(columnCountHysteresis);
+    }
+
+    private ObjectProperty<ResizePolicy> resizePolicy;
+
+    /**
+     * 幅が変わったときに列数を再計算する契機を返す。
+     * 既定値は{@link ResizePolicy#IMMEDIATE}。
+     * @return 列数を再計算する契機
+     */
+    public ResizePolicy getResizePolicy() {
+        if (resizePolicy == null) {
+            return DEFAULT_RESIZE_POLICY;
+        }
+        return resizePolicy.get();
+    }
+
+    /**
+     * 幅が変わったときに列数を再計算する契機を表すプロパティ。
+     * @return 列数を再計算する契機を表すプロパティ
+     */
+    public ObjectProperty<ResizePolicy> resizePolicyProperty() {
+        if (resizePolicy == null) {
+            resizePolicy = new SimpleObjectProperty<>(DEFAULT_RESIZE_POLICY);
+        }
+        return resizePolicy;
+    }
+
+    /**
+     * 幅が変わったときに列数を再計算する契機を割り当てる。
+     * @param resizePolicy 列数を再計算する契機
+     */
+    public void setResizePolicy(ResizePolicy resizePolicy) {
+        resizePolicyProperty().set(resizePolicy);
+    }
+
+    private ObjectProperty<Duration> resizeIdleDelay;
+
+    /**
+     * {@link ResizePolicy#DEFERRED}のときに、幅の変更が止まってから列数を再計算するまでの時間を返す。
+     * 既定値は200ミリ秒。
+     * @return 列数を再計算するまでの時間
+     */
+    public Duration getResizeIdleDelay() {
+        if (resizeIdleDelay == null) {
+            return DEFAULT_RESIZE_IDLE_DELAY;
+        }
+        return resizeIdleDelay.get();
+    }
+
+    /**
+     * {@link ResizePolicy#DEFERRED}のときに、幅の変更が止まってから列数を再計算するまでの時間を表すプロパティ。
+     * @return 列数を再計算するまでの時間を表すプロパティ
+     */
+    public ObjectProperty<Duration> resizeIdleDelayProperty() {
+        if (resizeIdleDelay == null) {
+            resizeIdleDelay = new SimpleObjectProperty<>(DEFAULT_RESIZE_IDLE_DELAY);
+        }
+        return resizeIdleDelay;
+    }
+
+    /**
+     * {@link ResizePolicy#DEFERRED}のときに、幅の変更が止まってから列数を再計算するまでの時間を割り当てる。
+     * @param resizeIdleDelay 列数を再計算するまでの時間
+     */
+    public void setResizeIdleDelay(Duration resizeIdleDelay) {
+        resizeIdleDelayProperty().set(resizeIdleDelay);
+    }
+
+    private ObjectProperty<RenderMode> renderMode;
+
+    /**
+     * 要素を表示する方法を返す。
+     * 既定値は{@link RenderMode#TABLE_VIEW}。
+     * @return 要素を表示する方法
+     */
+    public RenderMode getRenderMode() {
+        if (renderMode == null) {
+            return DEFAULT_RENDER_MODE;
+        }
+        return renderMode.get();
+    }
+
+    /**
+     * 要素を表示する方法を表すプロパティ。
+     * <p>
+     *     値を変更するとスキンが作り直される。
+     * </p>
+     * @return 要素を表示する方法を表すプロパティ
+     */
+    public ObjectProperty<RenderMode> renderModeProperty() {
+        if (renderMode == null) {
+            renderMode = new SimpleObjectProperty<>(DEFAULT_RENDER_MODE) {
+                @Override
+                protected void invalidated() {
+                    if (getSkin() != null) {
+                        setSkin(createDefaultSkin());
+                    }
+                }
+            };
+        }
+        return renderMode;
+    }
+
+    /**
+     * 要素を表示する方法を割り当てる。
+     * @param renderMode 要素を表示する方法
+     */
+    public void setRenderMode(RenderMode renderMode) {
+        renderModeProperty().set(renderMode);
+    }
+
+    private ObjectProperty<TilePainter<T>> tilePainter;
+
+    /**
+     * {@link RenderMode#CANVAS}で要素を描画する{@link TilePainter}を返す。
+     * 既定値はnull。
+     * @return 要素を描画するTilePainter
+     */
+    public TilePainter<T> getTilePainter() {
+        if (tilePainter == null) {
+            return null;
+        }
+        return tilePainter.get();
+    }
+
+    /**
+     * {@link RenderMode#CANVAS}で要素を描画する{@link TilePainter}を表すプロパティ。
+     * nullのときは要素の文字列を描画する。
+     * @return 要素を描画するTilePainterを表すプロパティ
+     */
+    public ObjectProperty<TilePainter<T>> tilePainterProperty() {
+        if (tilePainter == null) {
+            tilePainter = new SimpleObjectProperty<>();
+        }
+        return tilePainter;
+    }
+
+    /**
+     * {@link RenderMode#CANVAS}で要素を描画する{@link TilePainter}を割り当てる。
+     * @param tilePainter 要素を描画するTilePainter。nullのときは要素の文字列を描画する
+     */
+    public void setTilePainter(TilePainter<T> tilePainter) {
+        tilePainterProperty().set(tilePainter);
+    }
+
+    /**
+     * コントロールの座標に表示されている要素を返す。
+     * {@link RenderMode#CANVAS}で、マウスイベントの位置から要素を求めるときに使う。
+     * @param x コントロールのx座標
+     * @param y コントロールのy座標
+     * @return 要素。要素がないとき、または{@link RenderMode#CANVAS}以外で表示しているときはnull
+     */
+    @SuppressWarnings("unchecked")
+    public T getItemAt(double x, double y) {
+        if (!(getSkin() instanceof DynamicCanvasSkin)) {
+            return null;
+        }
+
+        int index = ((DynamicCanvasSkin<T>) getSkin()).indexAt(x, y);
+        return index < 0 ? null : getViewItems().get(index);
+    }
+
+    private IntegerProperty overscan;
+
+    /**
+     * 表示されている行の前後で、あらかじめセルを用意しておく行数を返す。
+     * 既定値は1。
+     * @return あらかじめセルを用意しておく行数
+     */
+    public int getOverscan() {
+        if (overscan == null) {
+            return DEFAULT_OVERSCAN;
+        }
+        return overscan.get();
+    }
+
+    /**
+     * 表示されている行の前後で、あらかじめセルを用意しておく行数を表すプロパティ。
+     * <p>
+     *     {@link RenderMode#VIRTUAL_FLOW}のときに使われる。
+     *     表示領域の外側の行にもセルを割り当てて{@link DynamicTableCell#updateItem(Object)}を済ませておき、
+     *     スクロールしてその行が表示されるときは、用意したセルをそのまま取り付ける。
+     *     0のときはセルを用意しない。
+     * </p>
+     * @return あらかじめセルを用意しておく行数を表すプロパティ
+     */
+    public IntegerProperty overscanProperty() {
+        if (overscan == null) {
+            overscan = new SimpleIntegerProperty(DEFAULT_OVERSCAN);
+        }
+        return overscan;
+    }
+
+    /**
+     * 表示されている行の前後で、あらかじめセルを用意しておく行数を割り当てる。
+     * @param overscan あらかじめセルを用意しておく行数
+     */
+    public void setOverscan(int overscan) {
+        overscanProperty().set(overscan);
+    }
+
+    private ObjectProperty<Prefetcher<T>> prefetcher;
+
+    /**
+     * これから表示される要素の準備をあらかじめ開始させる{@link Prefetcher}を返す。
+     * 既定値はnull。
+     * @return 要素の準備を開始させるPrefetcher
+     */
+    public Prefetcher<T> getPrefetcher() {
+        if (prefetcher == null) {
+            return null;
+        }
+        return prefetcher.get();
+    }
+
+    /**
+     * これから表示される要素の準備をあらかじめ開始させる{@link Prefetcher}を表すプロパティ。
+     * <p>
+     *     スクロールの方向と速さを追跡し、スクロールしている方向の先にある行の要素について呼び出す。
+     *     準備させた要素が表示されないまま準備する範囲から外れたときは、準備をキャンセルする。
+     * </p>
+     * @return 要素の準備を開始させるPrefetcherを表すプロパティ
+     */
+    public ObjectProperty<Prefetcher<T>> prefetcherProperty() {
+        if (prefetcher == null) {
+            prefetcher = new SimpleObjectProperty<>();
+        }
+        return prefetcher;
+    }
+
+    /**
+     * これから表示される要素の準備をあらかじめ開始させる{@link Prefetcher}を割り当てる。
+     * @param prefetcher 要素の準備を開始させるPrefetcher。nullのときは準備させない
+     */
+    public void setPrefetcher(Prefetcher<T> prefetcher) {
+        prefetcherProperty().set(prefetcher);
+    }
+
+    private IntegerProperty prefetchRows;
+
+    /**
+     * スクロールしている方向の先で、要素を準備させる行数を返す。
+     * 既定値は2。
+     * @return 要素を準備させる行数
+     */
+    public int getPrefetchRows() {
+        if (prefetchRows == null) {
+            return DEFAULT_PREFETCH_ROWS;
+        }
+        return prefetchRows.get();
+    }
+
+    /**
+     * スクロールしている方向の先で、要素を準備させる行数を表すプロパティ。
+     * 速くスクロールしているときは、速さに応じてこの行数より先の行まで準備させる。
+     * @return 要素を準備させる行数を表すプロパティ
+     */
+    public IntegerProperty prefetchRowsProperty() {
+        if (prefetchRows == null) {
+            prefetchRows = new SimpleIntegerProperty(DEFAULT_PREFETCH_ROWS);
+        }
+        return prefetchRows;
+    }
+
+    /**
+     * スクロールしている方向の先で、要素を準備させる行数を割り当てる。
+     * @param prefetchRows 要素を準備させる行数
+     */
+    public void setPrefetchRows(int prefetchRows) {
+        prefetchRowsProperty().set(prefetchRows);
+    }
+
+    private DoubleProperty fastScrollVelocity;
+
+    /**
+     * セルを簡易な表示に切り替えるスクロールの速さ(行/秒)を返す。
+     * 既定値は0で、簡易な表示には切り替えない。
+     * @return セルを簡易な表示に切り替えるスクロールの速さ
+     */
+    public double getFastScrollVelocity() {
+        if (fastScrollVelocity == null) {
+            return DEFAULT_FAST_SCROLL_VELOCITY;
+        }
+        return fastScrollVelocity.get();
+    }
+
+    /**
+     * セルを簡易な表示に切り替えるスクロールの速さ(行/秒)を表すプロパティ。
+     * <p>
+     *     この速さ以上でスクロールしている間は、セルに割り当てられたアイテムを
+     *     {@link DynamicTableCell#updateSkeleton(Object)}で簡易に表示する。
+     *     スクロールが止まると、簡易に表示していたセルを{@link DynamicTableCell#updateItem(Object)}で一度だけ表示し直す。
+     *     0以下のときは簡易な表示に切り替えない。
+     * </p>
+     * @return セルを簡易な表示に切り替えるスクロールの速さを表すプロパティ
+     */
+    public DoubleProperty fastScrollVelocityProperty() {
+        if (fastScrollVelocity == null) {
+            fastScrollVelocity = new SimpleDoubleProperty(DEFAULT_FAST_SCROLL_VELOCITY);
+        }
+        return fastScrollVelocity;
+    }
+
+    /**
+     * セルを簡易な表示に切り替えるスクロールの速さ(行/秒)を割り当てる。
+     * @param fastScrollVelocity セルを簡易な表示に切り替えるスクロールの速さ。0以下のときは切り替えない
+     */
+    public void setFastScrollVelocity(double fastScrollVelocity) {
+        fastScrollVelocityProperty().set(fastScrollVelocity);
+    }
+
+    private final ReadOnlyBooleanWrapper fastScrolling = new ReadOnlyBooleanWrapper(false);
+
+    /**
+     * 速くスクロールしていて、セルを簡易に表示しているかを返す。
+     * @return セルを簡易に表示しているときはtrue
+     */
+    public boolean isFastScrolling() {
+        return fastScrolling.get();
+    }
+
+    /**
+     * 速くスクロールしていて、セルを簡易に表示しているかを表すプロパティ。
+     * @return セルを簡易に表示しているかを表すプロパティ
+     * @see #fastScrollVelocityProperty()
+     */
+    public ReadOnlyBooleanProperty fastScrollingProperty() {
+        return fastScrolling.getReadOnlyProperty();
+    }
+
+    /**
+     * 簡易に表示しているセル
+     */
+    private final Set<DynamicTableCell<T>> skeletonCells = Collections.newSetFromMap(new WeakHashMap<>());
+
+    void setFastScrolling(boolean value) {
+        if (isFastScrolling() == value) {
+            return;
+        }
+        fastScrolling.set(value);
+
+        if (!value) {
+            // 簡易に表示していたセルを一度だけ表示し直す
+            var cells = new ArrayList<>(skeletonCells);
+            skeletonCells.clear();
+            for (var cell : cells) {
+                cell.finishSkeleton();
+            }
+        }
+    }
+
+    void addSkeletonCell(DynamicTableCell<T> cell) {
+        skeletonCells.add(cell);
+    }
+
+    void removeSkeletonCell(DynamicTableCell<T> cell) {
+        skeletonCells.remove(cell);
+    }
+
+    private CellPool<T> cellPool;
+
+    CellPool<T> getCellPool() {
+        if (cellPool == null) {
+            cellPool = new CellPool<>(getCellPoolSize());
+        }
+        return cellPool;
+    }
+
+    private IntegerProperty cellPoolSize;
+
+    /**
+     * 再利用するために保持するセルの数の上限を返す。
+     * 既定値は256。
+     * @return 保持するセルの数の上限
+     */
+    public int getCellPoolSize() {
+        if (cellPoolSize == null) {
+            return DEFAULT_CELL_POOL_SIZE;
+        }
+        return cellPoolSize.get();
+    }
+
+    /**
+     * 再利用するために保持するセルの数の上限を表すプロパティ。
+     * <p>
+     *     列数が減ったときに取り外された列は、セルとそのビューとともに保持され、列数が増えたときに取り付け直される。
+     *     保持している列のセルの数がこの上限を超えると列インデックスの大きい列から破棄し、
+     *     そのセルは新しい列のセルとして同じセルファクトリの列で再利用される。
+     *     0を割り当てるとセルを保持しない。
+     * </p>
+     * @return 保持するセルの数の上限を表すプロパティ
+     */
+    public IntegerProperty cellPoolSizeProperty() {
+        if (cellPoolSize == null) {
+            cellPoolSize = new SimpleIntegerProperty(DEFAULT_CELL_POOL_SIZE) {
+                @Override
+                protected void invalidated() {
+                    if (cellPool != null) {
+                        cellPool.setMaxSize(Math.max(0, get()));
+                    }
+                }
+            };
+        }
+        return cellPoolSize;
+    }
+
+    /**
+     * 再利用するために保持するセルの数の上限を割り当てる。
+     * @param cellPoolSize 保持するセルの数の上限
+     */
+    public void setCellPoolSize(int cellPoolSize) {
+        cellPoolSizeProperty().set(cellPoolSize);
+    }
+
     private ObjectProperty<Node> placeHolder;
 
     /**
@@ -201,6 +759,182 @@ public class DynamicTableView<T> extends Control {
         itemsProperty().set(items);
     }
 
+    private ObjectProperty<DataProvider<T>> dataProvider;
+
+    /**
+     * {@link DataProvider}から読み込んでいるリスト
+     */
+    private PagedItemList<T> pagedItems;
+
+    /**
+     * 表示する要素を必要な範囲だけ読み込む{@link DataProvider}を返す。
+     * 既定値はnull。
+     * @return 要素を読み込むDataProvider
+     */
+    public DataProvider<T> getDataProvider() {
+        if (dataProvider == null) {
+            return null;
+        }
+        return dataProvider.get();
+    }
+
+    /**
+     * 表示する要素を必要な範囲だけ読み込む{@link DataProvider}を表すプロパティ。
+     * <p>
+     *     割り当てると{@link #getItems()}は、要素の総数の大きさを持ちページ単位で要素を読み込むリストに置き換わる。
+     *     ページは表示している行と、スクロールしている方向の先{@link #getPrefetchRows()}行を含む範囲だけを読み込み、
+     *     {@link #getMaxCachedPages()}を超えると最も長い間使われていないページから破棄する。
+     *     読み込むまでの要素はnullとなり、セルには{@link DynamicTableCell#updatePlaceholder()}で仮の表示を行う。
+     * </p>
+     * <p>
+     *     絞り込みと並び替えはプロバイダが行う。割り当てている間は読み込むリストをそのまま表示し、
+     *     {@link #getFilteredItems()}と{@link #getSortedItems()}はnullとなる。
+     *     そのため{@link #filterAsync(Predicate)}や{@link #sortAsync(Comparator)}などの絞り込みと並び替えは何も行わない。
+     * </p>
+     * @return 要素を読み込むDataProviderを表すプロパティ
+     */
+    public ObjectProperty<DataProvider<T>> dataProviderProperty() {
+        if (dataProvider == null) {
+            dataProvider = new SimpleObjectProperty<>() {
+                @Override
+                protected void invalidated() {
+                    installDataProvider(get());
+                }
+            };
+        }
+        return dataProvider;
+    }
+
+    /**
+     * 表示する要素を必要な範囲だけ読み込む{@link DataProvider}を割り当てる。
+     * @param dataProvider 要素を読み込むDataProvider。nullのときは空の要素リストに置き換える
+     */
+    public void setDataProvider(DataProvider<T> dataProvider) {
+        dataProviderProperty().set(dataProvider);
+    }
+
+    private void installDataProvider(DataProvider<T> provider) {
+        if (pagedItems != null) {
+            pagedItems.dispose();
+            pagedItems = null;
+        }
+
+        if (provider == null) {
+            setItems(FXCollections.observableArrayList());
+            return;
+        }
+
+        pagedItems = new PagedItemList<>(provider, getPageSize(), getMaxCachedPages());
+        setItems(pagedItems);
+    }
+
+    private IntegerProperty pageSize;
+
+    /**
+     * {@link DataProvider}から一度に読み込む要素の数を返す。
+     * 既定値は256。
+     * @return 一度に読み込む要素の数
+     */
+    public int getPageSize() {
+        if (pageSize == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return pageSize.get();
+    }
+
+    /**
+     * {@link DataProvider}から一度に読み込む要素の数を表すプロパティ。
+     * {@link DataProvider}を割り当てたときの値が使われる。
+     * @return 一度に読み込む要素の数を表すプロパティ
+     */
+    public IntegerProperty pageSizeProperty() {
+        if (pageSize == null) {
+            pageSize = new SimpleIntegerProperty(DEFAULT_PAGE_SIZE);
+        }
+        return pageSize;
+    }
+
+    /**
+     * {@link DataProvider}から一度に読み込む要素の数を割り当てる。
+     * 次に{@link DataProvider}を割り当てたときから使われる。
+     * @param pageSize 一度に読み込む要素の数
+     */
+    public void setPageSize(int pageSize) {
+        pageSizeProperty().set(pageSize);
+    }
+
+    private IntegerProperty maxCachedPages;
+
+    /**
+     * {@link DataProvider}から読み込んだページを保持する数の上限を返す。
+     * 既定値は64。
+     * @return 読み込んだページを保持する数の上限
+     */
+    public int getMaxCachedPages() {
+        if (maxCachedPages == null) {
+            return DEFAULT_MAX_CACHED_PAGES;
+        }
+        return maxCachedPages.get();
+    }
+
+    /**
+     * {@link DataProvider}から読み込んだページを保持する数の上限を表すプロパティ。
+     * 表示している範囲を含むページより少ないと、表示しているページを読み込み直し続けることになる。
+     * @return 読み込んだページを保持する数の上限を表すプロパティ
+     */
+    public IntegerProperty maxCachedPagesProperty() {
+        if (maxCachedPages == null) {
+            maxCachedPages = new SimpleIntegerProperty(DEFAULT_MAX_CACHED_PAGES) {
+                @Override
+                protected void invalidated() {
+                    if (pagedItems != null) {
+                        pagedItems.setMaxPages(get());
+                    }
+                }
+            };
+        }
+        return maxCachedPages;
+    }
+
+    /**
+     * {@link DataProvider}から読み込んだページを保持する数の上限を割り当てる。
+     * @param maxCachedPages 読み込んだページを保持する数の上限
+     */
+    public void setMaxCachedPages(int maxCachedPages) {
+        maxCachedPagesProperty().set(maxCachedPages);
+    }
+
+    /**
+     * {@link DataProvider}から読み込んでいるときは、そのリストを返す。
+     */
+    private PagedItemList<T> getPagedItems() {
+        return pagedItems != null && getItems() == pagedItems ? pagedItems : null;
+    }
+
+    /**
+     * 指定の位置の要素を{@link DataProvider}から読み込んでいるところかを返す。
+     * 読み込んでいるリストはそのまま表示するため、要素インデックスは読み込んでいるリストでの位置と同じ。
+     * @param index {@link #getViewItems()}での要素インデックス
+     * @return 読み込んでいるところのときはtrue
+     */
+    boolean isItemPending(int index) {
+        var paged = getPagedItems();
+        return paged != null && 0 <= index && index < paged.size() && paged.isPending(index);
+    }
+
+    /**
+     * 指定の範囲の要素を{@link DataProvider}から読み込む。
+     * @param from {@link #getViewItems()}での要素インデックスの先頭
+     * @param to {@link #getViewItems()}での要素インデックスの末尾(この値を含まない)
+     */
+    void requestItems(int from, int to) {
+        var paged = getPagedItems();
+        if (paged == null || to <= from) {
+            return;
+        }
+        paged.request(from, to);
+    }
+
     final ReadOnlyObjectWrapper<FilteredList<T>> filteredItemsProperty = new ReadOnlyObjectWrapper<>(new FilteredList<>(itemsProperty.get()));
 
     /**
@@ -219,7 +953,7 @@ public class DynamicTableView<T> extends Control {
         return filteredItemsProperty.getReadOnlyProperty();
     }
 
-    final ReadOnlyObjectWrapper<SortedList<T>> sortedItemsProperty = new ReadOnlyObjectWrapper<>(new SortedList<>(filteredItemsProperty.get()));
+    final ReadOnlyObjectWrapper<SortedList<T>> sortedItemsProperty = new ReadOnlyObjectWrapper<>(new SortedList<>(new OrderedItemList<>(filteredItemsProperty.get())));
 
     /**
      * {@link DynamicTableView#getFilteredItems()} ()}をラップした{@link SortedList}を返す。
@@ -229,6 +963,18 @@ public class DynamicTableView<T> extends Control {
         return sortedItemsProperty().get();
     }
 
+    /**
+     * {@link #getSortedItems()}が並び替える前の、{@link #sortAsync(Comparator)}で求めた並び順のリストを返す。
+     */
+    @SuppressWarnings("unchecked")
+    OrderedItemList<T> getOrderedItems() {
+        var sortedItems = getSortedItems();
+        if (sortedItems != null && sortedItems.getSource() instanceof OrderedItemList) {
+            return (OrderedItemList<T>) sortedItems.getSource();
+        }
+        return null;
+    }
+
     /**
      * {@link DynamicTableView#getFilteredItems()} ()}をラップした{@link SortedList}プロパティを返します。
      * @return {@link DynamicTableView#getItems()}をラップしたリストプロパティ
@@ -237,11 +983,592 @@ public class DynamicTableView<T> extends Control {
         return sortedItemsProperty.getReadOnlyProperty();
     }
 
+    final ReadOnlyObjectWrapper<ObservableList<T>> viewItemsProperty = new ReadOnlyObjectWrapper<>(sortedItemsProperty.get());
+
+    /**
+     * 表示する順に並んだ要素リストを返す。
+     * 通常は{@link #getSortedItems()}で、{@link DataProvider}から読み込んでいるときは読み込んでいるリストそのもの。
+     */
+    ObservableList<T> getViewItems() {
+        return viewItemsProperty.get();
+    }
+
+    ReadOnlyObjectProperty<ObservableList<T>> viewItemsProperty() {
+        return viewItemsProperty.getReadOnlyProperty();
+    }
+
+    private ObjectProperty<Function<? super T, ?>> keyExtractor;
+
+    /**
+     * 要素を識別するキーを返す関数を返す。
+     * 既定値はnullで、要素そのものをキーとする。
+     * @return 要素を識別するキーを返す関数
+     */
+    public Function<? super T, ?> getKeyExtractor() {
+        if (keyExtractor == null) {
+            return null;
+        }
+        return keyExtractor.get();
+    }
+
+    /**
+     * 要素を識別するキーを返す関数を表すプロパティ。
+     * <p>
+     *     {@link DynamicTableView#indexOf(Object)}などで要素を探すときに、キーの{@link Object#equals(Object)}と
+     *     {@link Object#hashCode()}で要素を比較する。
+     *     要素のequalsとhashCodeが内容の変更に伴って変わる場合や、同じ内容の要素を区別したい場合は、
+     *     変わることのない識別子を返す関数を割り当てる。
+     * </p>
+     * @return 要素を識別するキーを返す関数を表すプロパティ
+     */
+    public ObjectProperty<Function<? super T, ?>> keyExtractorProperty() {
+        if (keyExtractor == null) {
+            keyExtractor = new SimpleObjectProperty<>() {
+                @Override
+                protected void invalidated() {
+                    getDataModel().setKeyExtractor(get());
+                }
+            };
+        }
+        return keyExtractor;
+    }
+
+    /**
+     * 要素を識別するキーを返す関数を割り当てる。
+     * @param keyExtractor 要素を識別するキーを返す関数
+     */
+    public void setKeyExtractor(Function<? super T, ?> keyExtractor) {
+        keyExtractorProperty().set(keyExtractor);
+    }
+
+    /**
+     * 要素の表示順の要素インデックスを返す。
+     * <p>
+     *     要素からインデックスへの索引を使うため、要素数に関わらずほぼ一定の時間で求められる。
+     *     索引は要素の変更に合わせて、追加・削除・更新された要素の分だけ更新する。後ろの要素の位置のずれは
+     *     変更ごとに記録しておき、検索した要素にだけ当てはめる。並び替えられた範囲の索引はその範囲だけ作り直す。
+     *     まだ索引を作っていない範囲や、変更が多すぎて作り直すことにした範囲は、次の呼び出しで作る。
+     * </p>
+     * @param item 要素
+     * @return {@link DynamicTableView#getSortedItems()}での要素インデックス。含まれていないときは-1
+     * @see DynamicTableView#keyExtractorProperty()
+     */
+    public int indexOf(T item) {
+        return getDataModel().indexOf(item);
+    }
+
+    /**
+     * 指定の要素が表示されるようにスクロールする。
+     * @param item 要素
+     */
+    public void scrollTo(T item) {
+        var index = indexOf(item);
+        var columnCount = getDataModel().getColumnCount();
+        if (index < 0 || columnCount < 1) {
+            return;
+        }
+        scrollToRow(index / columnCount);
+    }
+
+    private final ReadOnlyBooleanWrapper updating = new ReadOnlyBooleanWrapper(false);
+
+    private int updateDepth = 0;
+
+    /**
+     * {@link DynamicTableView#beginUpdate()}が呼び出されてから、対応する
+     * {@link DynamicTableView#endUpdate()}が呼び出されるまでの間かを返す。
+     * @return 要素の変更の反映を保留しているときはtrue
+     */
+    public boolean isUpdating() {
+        return updating.get();
+    }
+
+    /**
+     * 要素の変更の反映を保留しているかを表すプロパティ。
+     * @return 要素の変更の反映を保留しているかを表すプロパティ
+     */
+    public ReadOnlyBooleanProperty updatingProperty() {
+        return updating.getReadOnlyProperty();
+    }
+
+    /**
+     * 要素の変更の反映を保留する。
+     * <p>
+     *     {@link DynamicTableView#endUpdate()}が呼び出されるまで、行数の更新、セルの更新、
+     *     選択状態の変更の通知を行わず、{@link DynamicTableView#endUpdate()}で一度にまとめて反映する。
+     *     入れ子で呼び出すことができ、最も外側の{@link DynamicTableView#endUpdate()}で反映される。
+     * </p>
+     */
+    public void beginUpdate() {
+        if (updateDepth++ == 0) {
+            updating.set(true);
+        }
+    }
+
+    /**
+     * {@link DynamicTableView#beginUpdate()}で保留した要素の変更を反映する。
+     * @throws IllegalStateException {@link DynamicTableView#beginUpdate()}が呼び出されていないとき
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("beginUpdate() has not been called");
+        }
+        if (--updateDepth == 0) {
+            updating.set(false);
+
+            // スキンがないときは、保留していた選択状態の変更をここで通知する
+            if (selectionModel != null) {
+                selectionModel.get().flushDeferredChanges();
+            }
+        }
+    }
+
+    /**
+     * 引数の処理で行われた要素の変更をまとめて反映する。
+     * @param updater 要素を変更する処理
+     * @see DynamicTableView#beginUpdate()
+     */
+    public void batch(Runnable updater) {
+        beginUpdate();
+        try {
+            updater.run();
+        } finally {
+            endUpdate();
+        }
+    }
+
+    private BooleanProperty coalesceItemChanges;
+
+    /**
+     * 要素の変更をパルスごとにまとめて反映するかを返す。
+     * 既定値はtrue。
+     * @return 要素の変更をパルスごとにまとめて反映するときはtrue
+     */
+    public boolean isCoalesceItemChanges() {
+        if (coalesceItemChanges == null) {
+            return true;
+        }
+        return coalesceItemChanges.get();
+    }
+
+    /**
+     * 要素の変更をパルスごとにまとめて反映するかを表すプロパティ。
+     * <p>
+     *     trueのときは、同じパルスの間に行われた要素の変更を次のレイアウトの直前に一度だけ反映する。
+     *     選択状態は要素の変更に合わせてすぐに補正されるが、{@link DynamicTableViewSelectionModel#getSelectedIndices()}などの
+     *     変更の通知は要素の変更を反映するときにまとめて行われる。反映されるまでの間は行数が要素と一致しない。
+     *     falseのときは、要素が変更されるたびにすぐに反映する。
+     * </p>
+     * <p>
+     *     エクストラクタを指定して作成した{@link ObservableList}を{@link DynamicTableView#setItems(ObservableList)}
+     *     に割り当てると、要素のプロパティの変更はその要素を表示しているセルだけに反映される。
+     *     trueのときは、同じ要素が同じパルスの間に何度更新されても、セルの更新は一度だけ行われる。
+     * </p>
+     * @return 要素の変更をパルスごとにまとめて反映するかを表すプロパティ
+     */
+    public BooleanProperty coalesceItemChangesProperty() {
+        if (coalesceItemChanges == null) {
+            coalesceItemChanges = new SimpleBooleanProperty(true);
+        }
+        return coalesceItemChanges;
+    }
+
+    /**
+     * 要素の変更をパルスごとにまとめて反映するかを割り当てる。
+     * @param coalesceItemChanges 要素の変更をパルスごとにまとめて反映するときはtrue
+     */
+    public void setCoalesceItemChanges(boolean coalesceItemChanges) {
+        coalesceItemChangesProperty().set(coalesceItemChanges);
+    }
+
+    private static Executor defaultExecutor;
+
+    /**
+     * バックグラウンド処理に使うデーモンスレッドのスレッドプールを返す。
+     * @return 既定のExecutor
+     */
+    static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            var counter = new AtomicInteger();
+            defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+                var thread = new Thread(runnable, "DynamicTableView-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+
+    private ObjectProperty<Executor> executor;
+
+    /**
+     * バックグラウンド処理に使う{@link Executor}を返す。
+     * 既定ではデーモンスレッドのスレッドプールが割り当てられる。
+     * @return バックグラウンド処理に使うExecutor
+     */
+    public Executor getExecutor() {
+        if (executor == null) {
+            return getDefaultExecutor();
+        }
+        return executor.get();
+    }
+
+    /**
+     * バックグラウンド処理に使う{@link Executor}を表すプロパティ。
+     * @return バックグラウンド処理に使うExecutorを表すプロパティ
+     */
+    public ObjectProperty<Executor> executorProperty() {
+        if (executor == null) {
+            executor = new SimpleObjectProperty<>(getDefaultExecutor());
+        }
+        return executor;
+    }
+
+    /**
+     * バックグラウンド処理に使う{@link Executor}を割り当てる。
+     * @param executor バックグラウンド処理に使うExecutor
+     */
+    public void setExecutor(Executor executor) {
+        executorProperty().set(executor);
+    }
+
+    /**
+     * 引数のストリームをバックグラウンドスレッドで読み込み、
+     * フレームごとに少しずつ{@link DynamicTableView#getItems()}に追加する。
+     * FXアプリケーションスレッドから呼び出すこと。
+     * <p>
+     *     ストリームの要素数が分かる場合は{@link ItemLoadingTask#progressProperty()}で進捗を取得できる。
+     *     ストリームは読み込みが終わったときに閉じられる。
+     * </p>
+     * @param source 追加する要素のストリーム
+     * @return 読み込みを管理するタスク。キャンセルすることで読み込みを中止できる。
+     */
+    public ItemLoadingTask<T> loadItemsAsync(Stream<? extends T> source) {
+        var spliterator = source.spliterator();
+        var task = new ItemLoadingTask<T>(this, Spliterators.iterator(spliterator), spliterator.getExactSizeIfKnown());
+        task.runningProperty().addListener((ob, o, n) -> {
+            if (!n) {
+                source.close();
+            }
+        });
+        return startLoading(task);
+    }
+
+    /**
+     * 引数のイテレータをバックグラウンドスレッドで読み込み、
+     * フレームごとに少しずつ{@link DynamicTableView#getItems()}に追加する。
+     * FXアプリケーションスレッドから呼び出すこと。
+     * @param source 追加する要素のイテレータ
+     * @return 読み込みを管理するタスク。キャンセルすることで読み込みを中止できる。
+     */
+    public ItemLoadingTask<T> loadItemsAsync(Iterator<? extends T> source) {
+        return startLoading(new ItemLoadingTask<>(this, source, -1));
+    }
+
+    private ItemLoadingTask<T> startLoading(ItemLoadingTask<T> task) {
+        task.startApplying();
+        getExecutor().execute(task);
+        return task;
+    }
+
+    private ItemFilteringTask<T> filteringTask;
+
+    private final ReadOnlyBooleanWrapper filtering = new ReadOnlyBooleanWrapper(false);
+
+    /**
+     * {@link DynamicTableView#filterAsync(Predicate)}で開始したフィルタの評価を行っているかを返す。
+     * @return フィルタを評価しているときはtrue
+     */
+    public boolean isFiltering() {
+        return filtering.get();
+    }
+
+    /**
+     * {@link DynamicTableView#filterAsync(Predicate)}で開始したフィルタの評価を行っているかを表すプロパティ。
+     * @return フィルタを評価しているかを表すプロパティ
+     */
+    public ReadOnlyBooleanProperty filteringProperty() {
+        return filtering.getReadOnlyProperty();
+    }
+
+    /**
+     * フィルタをバックグラウンドで並列に評価し、評価が終わったときに
+     * {@link DynamicTableView#getFilteredItems()}に一度で反映する。
+     * FXアプリケーションスレッドから呼び出すこと。
+     * <p>
+     *     フィルタは呼び出したときの{@link DynamicTableView#getItems()}のスナップショットに対して評価する。
+     *     評価が終わる前に再び呼び出されたときは、前の評価はキャンセルされ反映されない。
+     *     評価している間は{@link DynamicTableView#filteringProperty()}がtrueになる。
+     * </p>
+     * @param predicate スレッドセーフなフィルタ。nullのときはすぐにフィルタを解除する。
+     * @return 評価を管理するタスク。フィルタを解除したときはnull
+     */
+    public ItemFilteringTask<T> filterAsync(Predicate<? super T> predicate) {
+        var previous = filteringTask;
+        filteringTask = null;
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        var filteredItems = getFilteredItems();
+        if (predicate == null || filteredItems == null) {
+            filtering.set(false);
+            if (filteredItems != null) {
+                filteredItems.setPredicate(null);
+            }
+            return null;
+        }
+
+        var task = new ItemFilteringTask<T>(this, predicate);
+        filteringTask = task;
+        filtering.set(true);
+
+        getExecutor().execute(task);
+        return task;
+    }
+
+    boolean isCurrentFilteringTask(ItemFilteringTask<T> task) {
+        return filteringTask == task;
+    }
+
+    /**
+     * フィルタの評価が終わったときに呼び出される。
+     */
+    void filteringFinished(ItemFilteringTask<T> task) {
+        if (filteringTask == task) {
+            filteringTask = null;
+            filtering.set(false);
+        }
+    }
+
+    private FilterStack<T> filterStack;
+
+    /**
+     * 現在フィルタを通過している要素を、引数のフィルタでさらに絞り込む。
+     * <p>
+     *     引数のフィルタは現在フィルタを通過している要素にだけ適用されるため、
+     *     評価にかかる時間は要素の総数ではなく現在表示されている要素の数に比例する。
+     *     検索文字列に文字を追加したときのように、新しい条件が現在の条件を満たす要素の中から
+     *     さらに絞り込むものであるときに使う。
+     * </p>
+     * <p>
+     *     絞り込んだ結果は段階ごとに保持され、{@link DynamicTableView#widenFilter()}で
+     *     フィルタを評価し直すことなく前の段階に戻すことができる。
+     *     {@link FilteredList#setPredicate(Predicate)}などで別のフィルタを割り当てたときは、
+     *     それまでの段階は破棄される。
+     * </p>
+     * @param predicate 現在のフィルタを通過した要素に適用するフィルタ
+     */
+    public void refineFilter(Predicate<? super T> predicate) {
+        Objects.requireNonNull(predicate);
+
+        var filteredItems = getFilteredItems();
+        if (filteredItems == null) {
+            return;
+        }
+
+        if (filterStack == null || !filterStack.isInstalled(filteredItems)) {
+            if (filterStack != null) {
+                filterStack.dispose();
+            }
+            filterStack = new FilterStack<>(filteredItems);
+        }
+        filterStack.refine(predicate);
+    }
+
+    /**
+     * {@link DynamicTableView#refineFilter(Predicate)}で最後に絞り込む前の状態に戻す。
+     * <p>
+     *     絞り込んだあとに要素リストが変更されていなければ、保持している結果を使うためフィルタは評価しない。
+     * </p>
+     * @return 戻したときはtrue。絞り込んでいないときはfalse
+     */
+    public boolean widenFilter() {
+        var filteredItems = getFilteredItems();
+        if (filterStack == null || filteredItems == null || !filterStack.isInstalled(filteredItems)) {
+            return false;
+        }
+        return filterStack.widen();
+    }
+
+    private ObjectProperty<TextSearchIndex<T>> searchIndex;
+
+    /**
+     * {@link DynamicTableView#search(String)}で使う索引を返す。
+     * 既定値はnull。
+     * @return 検索に使う索引
+     */
+    public TextSearchIndex<T> getSearchIndex() {
+        if (searchIndex == null) {
+            return null;
+        }
+        return searchIndex.get();
+    }
+
+    /**
+     * {@link DynamicTableView#search(String)}で使う索引を表すプロパティ。
+     * <p>
+     *     割り当てた索引は{@link DynamicTableView#getItems()}の変更に合わせてバックグラウンドで更新される。
+     *     一つの索引を複数のコントロールに割り当てることはできない。
+     * </p>
+     * @return 検索に使う索引を表すプロパティ
+     */
+    public ObjectProperty<TextSearchIndex<T>> searchIndexProperty() {
+        if (searchIndex == null) {
+            searchIndex = new SimpleObjectProperty<>() {
+
+                private TextSearchIndex<T> attached;
+
+                @Override
+                protected void invalidated() {
+                    if (attached != null) {
+                        attached.detach();
+                    }
+                    attached = get();
+                    if (attached != null) {
+                        attached.attach(getItems(), getExecutor());
+                    }
+                }
+            };
+        }
+        return searchIndex;
+    }
+
+    /**
+     * {@link DynamicTableView#search(String)}で使う索引を割り当てる。
+     * @param searchIndex 検索に使う索引。nullのときは以前の索引を取り外す
+     */
+    public void setSearchIndex(TextSearchIndex<T> searchIndex) {
+        searchIndexProperty().set(searchIndex);
+    }
+
+    private int searchGeneration = 0;
+
+    /**
+     * {@link DynamicTableView#searchIndexProperty()}の索引で検索文字列を含む要素を探し、
+     * {@link DynamicTableView#getFilteredItems()}を絞り込む。FXアプリケーションスレッドから呼び出すこと。
+     * <p>
+     *     検索はバックグラウンドで行い、終わったときに結果を一度で反映する。検索が終わる前に再び呼び出されたときは、
+     *     前の検索の結果は反映されない。検索している間に要素リストが変更されたときは検索し直す。
+     * </p>
+     * @param query 検索文字列。大文字と小文字は区別しない。nullか空文字のときはすぐにフィルタを解除する。
+     * @throws IllegalStateException 索引が割り当てられていないとき
+     */
+    public void search(String query) {
+        var index = getSearchIndex();
+        if (index == null) {
+            throw new IllegalStateException("searchIndex is not set");
+        }
+
+        int generation = ++searchGeneration;
+
+        var filteredItems = getFilteredItems();
+        if (filteredItems == null) {
+            return;
+        }
+        if (query == null || query.isEmpty()) {
+            filteredItems.setPredicate(null);
+            return;
+        }
+
+        index.search(query).thenAcceptAsync(result -> {
+            if (generation != searchGeneration || filteredItems != getFilteredItems()) {
+                return;
+            }
+            if (result.isValid()) {
+                result.apply(filteredItems);
+            } else {
+                search(query);
+            }
+        }, Platform::runLater);
+    }
+
+    private ItemSortingTask<T> sortingTask;
+
+    private final ReadOnlyBooleanWrapper sorting = new ReadOnlyBooleanWrapper(false);
+
+    /**
+     * {@link DynamicTableView#sortAsync(Comparator)}で開始した並び替えを行っているかを返す。
+     * @return 並び替えているときはtrue
+     */
+    public boolean isSorting() {
+        return sorting.get();
+    }
+
+    /**
+     * {@link DynamicTableView#sortAsync(Comparator)}で開始した並び替えを行っているかを表すプロパティ。
+     * @return 並び替えているかを表すプロパティ
+     */
+    public ReadOnlyBooleanProperty sortingProperty() {
+        return sorting.getReadOnlyProperty();
+    }
+
+    /**
+     * 要素をバックグラウンドで並列に並び替え、並び替えが終わったときに
+     * {@link DynamicTableView#getSortedItems()}に一度で反映する。
+     * FXアプリケーションスレッドから呼び出すこと。
+     * <p>
+     *     呼び出したときの{@link DynamicTableView#getFilteredItems()}のスナップショットを並び替える。
+     *     並び替えが終わる前に再び呼び出されたときは、前の並び替えはキャンセルされ反映されない。
+     *     並び替えている間は{@link DynamicTableView#sortingProperty()}がtrueになる。
+     * </p>
+     * <p>
+     *     並び替えた順は{@link DynamicTableView#getSortedItems()}の元のリストに設定するため、
+     *     反映したあとの{@link SortedList#getComparator()}はnullになる。
+     *     {@link SortedList#setComparator(Comparator)}で比較関数を設定したときは、そちらの順で表示される。
+     * </p>
+     * @param comparator スレッドセーフな比較関数。nullのときはすぐに並び替えを解除する。
+     * @return 並び替えを管理するタスク。並び替えを解除したときはnull
+     */
+    public ItemSortingTask<T> sortAsync(Comparator<? super T> comparator) {
+        var previous = sortingTask;
+        sortingTask = null;
+        if (previous != null) {
+            previous.cancel();
+        }
+
+        var sortedItems = getSortedItems();
+        if (comparator == null || sortedItems == null) {
+            sorting.set(false);
+            if (sortedItems != null) {
+                var orderedItems = getOrderedItems();
+                if (orderedItems != null) {
+                    orderedItems.resetOrder();
+                }
+                sortedItems.setComparator(null);
+            }
+            return null;
+        }
+
+        var task = new ItemSortingTask<T>(this, comparator);
+        sortingTask = task;
+        sorting.set(true);
+
+        getExecutor().execute(task);
+        return task;
+    }
+
+    boolean isCurrentSortingTask(ItemSortingTask<T> task) {
+        return sortingTask == task;
+    }
+
+    /**
+     * 並び替えが終わったときに呼び出される。
+     */
+    void sortingFinished(ItemSortingTask<T> task) {
+        if (sortingTask == task) {
+            sortingTask = null;
+            sorting.set(false);
+        }
+    }
+
     private ReadOnlyObjectWrapper<DynamicTableViewSelectionModel<T>> selectionModel;
 
     ReadOnlyObjectWrapper<DynamicTableViewSelectionModel<T>> selectionModelWrapper() {
         if (selectionModel == null) {
-            selectionModel = new ReadOnlyObjectWrapper<>(new DynamicTableViewSelectionModel<>(getTableView(), getDataModel()));
+            // 要素の変更の反映を保留している間は、選択状態の変更の通知も保留する
+            selectionModel = new ReadOnlyObjectWrapper<>(new DynamicTableViewSelectionModel<>(getDataModel(),
+                    () -> isUpdating() || (getSkin() != null && isCoalesceItemChanges())));
         }
         return selectionModel;
     }
@@ -262,26 +1589,54 @@ public class DynamicTableView<T> extends Control {
         return selectionModelWrapper().getReadOnlyProperty();
     }
 
+    /**
+     * セルファクトリからセルを生成し、セルの大きさをこのコントロールに合わせる。
+     * 固定サイズモードのときは、セルの大きさはバインドしない。
+     * @return 生成したセル
+     */
+    DynamicTableCell<T> createCell() {
+        var factory = getCellFactory();
+        DynamicTableCell<T> cell = factory == null ? new DefaultDynamicTableCell<>() : factory.get();
+        cell.setControl(this);
+        return cell;
+    }
+
+    private void scrollToRow(int rowIndex) {
+        if (getSkin() instanceof DynamicTableViewSkinBase) {
+            ((DynamicTableViewSkinBase<?>) getSkin()).scrollToRow(rowIndex);
+        } else {
+            getTableView().scrollTo(rowIndex);
+        }
+    }
+
     /**
      * 先頭の行にスクロールするメソッド。
      */
     public void scrollToTop() {
-        getTableView().scrollTo(0);
+        scrollToRow(0);
     }
 
     /**
      * 最終行にスクロールするメソッド。
      */
     public void scrollToBottom() {
-        if (getTableView().getItems().isEmpty()) {
+        var rowCount = getDataModel().getRowCount();
+        if (rowCount == 0) {
             scrollToTop();
             return;
         }
-        getTableView().scrollTo(getTableView().getItems().size() - 1);
+        scrollToRow(rowCount - 1);
     }
 
     @Override
     protected Skin<?> createDefaultSkin() {
+        var mode = getRenderMode();
+        if (mode == RenderMode.VIRTUAL_FLOW) {
+            return new DynamicGridViewSkin<>(this);
+        }
+        if (mode == RenderMode.CANVAS) {
+            return new DynamicCanvasSkin<>(this);
+        }
         return new DynamicTableViewSkin<>(this);
     }
 
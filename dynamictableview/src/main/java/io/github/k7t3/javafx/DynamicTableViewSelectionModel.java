@@ -1,197 +1,670 @@
 package io.github.k7t3.javafx;
 
-import javafx.collections.FXCollections;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
 import javafx.scene.control.MultipleSelectionModel;
-import javafx.scene.control.TableColumn;
-import javafx.scene.control.TablePosition;
-import javafx.scene.control.TableView;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
 
 /**
  * SelectionModelの拡張
+ * <p>
+ *     選択状態は要素インデックスの範囲の並びとして保持する。
+ *     {@link #getSelectedIndices()}と{@link #getSelectedItems()}は範囲から値を求めるビューで、
+ *     変更は範囲単位でまとめて通知される。そのため全選択や範囲選択、選択の反転は要素数ではなく
+ *     範囲の数に比例する時間で行える。
+ * </p>
+ * <p>
+ *     {@link #retainSelectionProperty()}を有効にすると、フィルタや並び替え、要素リストの置き換えで
+ *     表示されなくなった選択中の要素のキーを覚えておき、同じキーの要素が再び表示されたときに選択し直す。
+ *     キーは{@link DynamicTableView#keyExtractorProperty()}で求める。
+ * </p>
+ * <p>
+ *     {@link DynamicTableView#beginUpdate()}で要素の変更を保留している間や、
+ *     {@link DynamicTableView#coalesceItemChangesProperty()}で変更をパルスごとにまとめている間は、
+ *     選択状態は要素の変更に合わせてすぐに補正するが、{@link #getSelectedIndices()}と{@link #getSelectedItems()}の
+ *     変更は保留し、テーブルが要素の変更を反映するときに、保留を始める前の状態からの範囲単位の変更としてまとめて通知する。
+ *     選択状態が変わらない要素の更新と、読み込まれていない要素の読み込みは保留しない。
+ *     保留している間に選択するメソッドが呼び出されたときは、保留している変更を通知してから選択する。
+ * </p>
  */
 public class DynamicTableViewSelectionModel<T> extends MultipleSelectionModel<T> {
 
-    final ObservableList<T> selectedItems = FXCollections.observableArrayList();
-    private final ObservableList<T> readOnlySelectedItems = FXCollections.unmodifiableObservableList(selectedItems);
+    private final IndexRangeSet selection = new IndexRangeSet();
 
-    final ObservableList<Integer> selectedIndices = FXCollections.observableArrayList();
-    private final ObservableList<Integer> readOnlySelectedIndices = FXCollections.unmodifiableObservableList(selectedIndices);
+    private final SelectedIndices selectedIndices = new SelectedIndices();
 
-    private final TableView<TableDataRowModel<T>> tableView;
-    private final TableView.TableViewSelectionModel<TableDataRowModel<T>> selectionModel;
+    private final SelectedItems selectedItems = new SelectedItems();
 
     private final TableDataModel<T> dataModel;
 
-    private final ObservableList<T> items;
+    private List<T> items;
 
-    @SuppressWarnings("rawtypes")
-    DynamicTableViewSelectionModel(TableView<TableDataRowModel<T>> tableView, TableDataModel<T> dataModel) {
-        this.tableView = tableView;
-        this.selectionModel = tableView.getSelectionModel();
-        this.dataModel = dataModel;
-        this.items = dataModel.getItems();
+    private final ListChangeListener<T> itemsListener = this::itemsChanged;
 
-        selectionModel.getSelectedCells().addListener((ListChangeListener<? super TablePosition>) (c) -> {
-            while (c.next()) {
-                if (c.wasRemoved()) {
+    private final RangeListChange.Builder<Integer> indicesChange = new RangeListChange.Builder<>();
+
+    private final RangeListChange.Builder<T> itemsChange = new RangeListChange.Builder<>();
+
+    /**
+     * 要素リストから削除された要素。削除された位置の選択を解除するときに、解除された要素として通知する。
+     */
+    private List<? extends T> deletedItems;
 
-                    if (c.getList().isEmpty()) {
+    private int deletedFrom;
 
-                        clearSelection();
+    /**
+     * 選択が解除されたインデックスから、その要素の現在のインデックスを求める関数
+     */
+    private IntUnaryOperator removedIndexMapper;
 
-                    } else {
+    /**
+     * 選択されたまま要素リストから取り除かれた要素のキー
+     */
+    private final Set<Object> retainedKeys = new HashSet<>();
 
-                        // 選択が解除されたセルのリスト
-                        List<? extends TablePosition> changed = c.getRemoved();
+    /**
+     * 選択状態の変更の通知を保留するかを返す関数
+     */
+    private final BooleanSupplier deferring;
+
+    /**
+     * 保留している選択インデックスの変更
+     */
+    private final RangeListChange.Accumulator<Integer> deferredIndices = new RangeListChange.Accumulator<>();
+
+    /**
+     * 保留している選択されている要素の変更
+     */
+    private final RangeListChange.Accumulator<T> deferredItems = new RangeListChange.Accumulator<>();
+
+    private final IndexRangeSet.RangeListener recorder = new IndexRangeSet.RangeListener() {
+        @Override
+        public void added(int position, int from, int to) {
+            indicesChange.added(position, position + to - from);
+            itemsChange.added(position, position + to - from);
+        }
 
-                        for (int i = changed.size() - 1; -1 < i; i--) {
-                            TablePosition position = changed.get(i);
-                            int row = position.getRow();
-                            int column = position.getColumn();
+        @Override
+        public void removed(int position, int from, int to) {
+            indicesChange.removed(position, new IndexRange(from, to));
+            itemsChange.removed(position, removedItems(from, to));
+        }
+
+        @Override
+        public void shifted(int position, int length, int delta) {
+            // 要素はそのままでインデックスだけがずれる
+            indicesChange.replaced(position, position + length, new ShiftedIndices(position, length, delta));
+        }
+    };
+
+    DynamicTableViewSelectionModel(TableDataModel<T> dataModel) {
+        this(dataModel, () -> false);
+    }
+
+    DynamicTableViewSelectionModel(TableDataModel<T> dataModel, BooleanSupplier deferring) {
+        this.dataModel = dataModel;
+        this.deferring = deferring;
 
-                            T item = dataModel.get(row, column);
-                            if (item != null) {
-                                selectedItems.remove(item);
+        observeItems(dataModel.getItems());
+        dataModel.itemsProperty().addListener((ob, o, n) -> itemsReplaced(n));
+    }
 
-                                Integer index = row * dataModel.getColumnCount() + column;
-                                selectedIndices.remove(index);
-                            }
-                        }
+    private BooleanProperty retainSelection;
 
-                        if (selectedItems.isEmpty()) {
-                            setSelectedItem(null);
-                            setSelectedIndex(-1);
-                        } else {
-                            setSelectedItem(selectedItems.get(selectedItems.size() - 1));
-                            setSelectedIndex(selectedIndices.get(selectedIndices.size() - 1));
-                        }
+    public boolean isRetainSelection() {
+        if (retainSelection == null) {
+            return false;
+        }
+        return retainSelection.get();
+    }
 
+    /**
+     * 要素リストの変更をまたいで選択状態を保持するかを表すプロパティ。
+     * <p>
+     *     有効なときは、選択中の要素がフィルタなどで要素リストから取り除かれてもそのキーを保持し、
+     *     同じキーの要素が追加されたときに選択し直す。選択し直す処理は変更された範囲に対してだけ行う。
+     *     保持しているキーは{@link #clearSelection()}か、このプロパティを無効にしたときに破棄する。
+     * </p>
+     * @return 選択状態を保持するかを表すプロパティ
+     */
+    public BooleanProperty retainSelectionProperty() {
+        if (retainSelection == null) {
+            retainSelection = new SimpleBooleanProperty(false) {
+                @Override
+                protected void invalidated() {
+                    if (!get()) {
+                        retainedKeys.clear();
                     }
+                }
+            };
+        }
+        return retainSelection;
+    }
+
+    public void setRetainSelection(boolean retainSelection) {
+        retainSelectionProperty().set(retainSelection);
+    }
+
+    private void itemsReplaced(List<T> newItems) {
+        deferIfUpdating();
+
+        if (!isRetainSelection()) {
+            clearAll();
+            observeItems(newItems);
+            return;
+        }
+
+        var oldItems = items;
+        retainKeys(0, getItemCount(), oldItems::get);
+        selection.clear(recorder);
+        commit();
+
+        observeItems(newItems);
+        restoreRetainedKeys();
+    }
 
+    /**
+     * 指定の範囲で選択されている要素のキーを保持する。
+     */
+    private void retainKeys(int from, int to, IntFunction<? extends T> itemAt) {
+        for (int r = selection.rangeAfter(from); r < selection.rangeCount(); r++) {
+            int start = Math.max(from, selection.rangeStart(r));
+            int end = Math.min(to, selection.rangeEnd(r));
+            if (to <= start) {
+                break;
+            }
+            for (int i = start; i < end; i++) {
+                // まだ読み込んでいない要素はキーを求められない
+                var item = itemAt.apply(i);
+                if (item != null) {
+                    retainedKeys.add(dataModel.keyOf(item));
                 }
-                if (c.wasAdded()) {
+            }
+        }
+    }
 
-                    // 選択されたセルのリスト
-                    List<? extends TablePosition> list = c.getAddedSubList();
+    /**
+     * 追加された範囲にある、キーを保持している要素を選択し直す。
+     */
+    private void restoreAddedKeys(int from, int to) {
+        int start = -1;
+        for (int i = from; i < to; i++) {
+            var item = items.get(i);
+            if (item != null && retainedKeys.remove(dataModel.keyOf(item))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (0 <= start) {
+                selection.add(start, i, recorder);
+                start = -1;
+            }
+        }
+        if (0 <= start) {
+            selection.add(start, to, recorder);
+        }
+        commit();
+    }
 
-                    for (TablePosition pos : list) {
-                        var row = pos.getRow();
-                        var column = pos.getColumn();
+    /**
+     * 要素リストが置き換えられたときに、キーを保持している要素を索引から探して選択し直す。
+     */
+    private void restoreRetainedKeys() {
+        if (retainedKeys.isEmpty() || getItemCount() == 0) {
+            return;
+        }
 
-                        var item = dataModel.get(row, column);
-                        var index = row * dataModel.getColumnCount() + column;
+        int[] found = new int[retainedKeys.size()];
+        int count = 0;
+        for (var iterator = retainedKeys.iterator(); iterator.hasNext(); ) {
+            int index = dataModel.indexOfKey(iterator.next());
+            if (0 <= index) {
+                found[count++] = index;
+                iterator.remove();
+            }
+        }
+        Arrays.sort(found, 0, count);
 
-                        if (item != null) {
-                            selectedItems.add(item);
-                            selectedIndices.add(index);
+        for (int i = 0; i < count; ) {
+            int start = found[i];
+            int end = start + 1;
+            while (++i < count && found[i] <= end) {
+                end = found[i] + 1;
+            }
+            selection.add(start, end, recorder);
+        }
+        commit();
+
+        validateSelectedIndex();
+    }
+
+    private void observeItems(List<T> newItems) {
+        if (items instanceof ObservableList) {
+            ((ObservableList<T>) items).removeListener(itemsListener);
+        }
+
+        items = newItems;
+
+        if (newItems instanceof ObservableList) {
+            ((ObservableList<T>) newItems).addListener(itemsListener);
+        }
+    }
+
+    private int getItemCount() {
+        return items == null ? 0 : items.size();
+    }
 
-                            setSelectedItem(item);
-                            setSelectedIndex(index);
-                        }
+    private List<T> removedItems(int from, int to) {
+        if (deletedItems != null) {
+            var removed = deletedItems;
+            var offset = deletedFrom;
+            return new LazyList<>(to - from, i -> removed.get(from + i - offset));
+        }
+
+        var list = items;
+        var mapper = removedIndexMapper;
+        return new LazyList<>(to - from, i -> list.get(mapper == null ? from + i : mapper.applyAsInt(from + i)));
+    }
+
+    /**
+     * 記録した変更を通知する。通知を保留しているときは、記録した変更を保留している変更に当てはめる。
+     */
+    private void commit() {
+        if (deferredIndices.isActive()) {
+            deferredIndices.apply(indicesChange);
+            deferredItems.apply(itemsChange);
+            return;
+        }
+        if (!indicesChange.isEmpty()) {
+            var change = indicesChange.build(selectedIndices);
+            indicesChange.clear();
+            selectedIndices.fire(change);
+        }
+        if (!itemsChange.isEmpty()) {
+            var change = itemsChange.build(selectedItems);
+            itemsChange.clear();
+            selectedItems.fire(change);
+        }
+    }
+
+    /**
+     * テーブルが要素の変更の反映を保留しているときは、選択状態の変更の通知を保留し始める。
+     * 選択状態を変更する前に呼び出すこと。
+     */
+    private void deferIfUpdating() {
+        if (deferredIndices.isActive() || !deferring.getAsBoolean()) {
+            return;
+        }
+
+        // 選択インデックスは範囲を複製しておけば、保留を始める前の値を求められる
+        var snapshot = selection.copy();
+        deferredIndices.begin(snapshot.size(), snapshot::get);
+        deferredItems.begin(snapshot.size(), null);
+    }
+
+    /**
+     * 保留している選択状態の変更を、保留を始める前の状態からの変更としてまとめて通知する。
+     * テーブルが保留していた要素の変更を反映したときに呼び出される。
+     */
+    void flushDeferredChanges() {
+        if (!deferredIndices.isActive()) {
+            return;
+        }
+
+        deferredIndices.finish(indicesChange);
+        deferredItems.finish(itemsChange);
+        commit();
+    }
+
+    private void updateSelectedIndex(int index) {
+        if (index < 0 || getItemCount() <= index) {
+            setSelectedIndex(-1);
+            setSelectedItem(null);
+        } else {
+            setSelectedIndex(index);
+            setSelectedItem(items.get(index));
+        }
+    }
+
+    /**
+     * 現在の選択インデックスの選択が解除されていたら、最も後ろの選択されている要素を選択インデックスにする。
+     */
+    private void validateSelectedIndex() {
+        var index = getSelectedIndex();
+        if (index < 0 || !selection.contains(index)) {
+            updateSelectedIndex(selection.last());
+        }
+    }
+
+    private void itemsChanged(ListChangeListener.Change<? extends T> c) {
+        while (c.next()) {
+            if (c.wasPermutated()) {
+
+                deferIfUpdating();
+                permutate(c.getFrom(), c.getTo(), c::getPermutation);
+
+            } else if (PagedItemList.isPlaceholderChange(c)) {
+
+                placeholdersReplaced(c.getFrom(), c.getTo(), c.getRemoved());
+
+            } else if (!c.wasUpdated()) {
+
+                // 選択状態が変わらない更新と読み込みは、保留せずに通知する
+                deferIfUpdating();
+
+                var index = getSelectedIndex();
+
+                if (c.wasRemoved()) {
+                    deletedItems = c.getRemoved();
+                    deletedFrom = c.getFrom();
+                    if (isRetainSelection()) {
+                        var removed = deletedItems;
+                        int offset = deletedFrom;
+                        retainKeys(offset, offset + c.getRemovedSize(), i -> removed.get(i - offset));
+                    }
+                    try {
+                        selection.delete(c.getFrom(), c.getRemovedSize(), recorder);
+                        commit();
+                    } finally {
+                        deletedItems = null;
                     }
 
+                    if (c.getFrom() + c.getRemovedSize() <= index) {
+                        index -= c.getRemovedSize();
+                    } else if (c.getFrom() <= index) {
+                        index = -1;
+                    }
+                }
+
+                if (c.wasAdded()) {
+                    selection.insert(c.getFrom(), c.getAddedSize(), recorder);
+                    commit();
+
+                    if (!retainedKeys.isEmpty()) {
+                        restoreAddedKeys(c.getFrom(), c.getTo());
+                    }
+
+                    if (c.getFrom() <= index) {
+                        index += c.getAddedSize();
+                    }
+                }
+
+                if (index != getSelectedIndex() || index < 0) {
+                    updateSelectedIndex(index);
+                    validateSelectedIndex();
                 }
             }
-        });
+        }
+    }
+
+    /**
+     * 要素が読み込まれたか破棄されたときに、選択を保ったまま選択中の要素が変わったことを通知する。
+     */
+    private void placeholdersReplaced(int from, int to, List<? extends T> removed) {
+        for (int r = selection.rangeAfter(from); r < selection.rangeCount(); r++) {
+            int start = Math.max(from, selection.rangeStart(r));
+            int end = Math.min(to, selection.rangeEnd(r));
+            if (to <= start) {
+                break;
+            }
+            if (start < end) {
+                int position = selection.rank(start);
+                itemsChange.replaced(position, position + end - start, new ArrayList<>(removed.subList(start - from, end - from)));
+            }
+        }
+        commit();
+
+        var index = getSelectedIndex();
+        if (from <= index && index < to) {
+            setSelectedItem(items.get(index));
+        }
+
+        if (!retainedKeys.isEmpty()) {
+            restoreAddedKeys(from, to);
+        }
     }
 
     @Override
     public ObservableList<Integer> getSelectedIndices() {
-        return readOnlySelectedIndices;
+        return selectedIndices;
     }
 
     @Override
     public ObservableList<T> getSelectedItems() {
-        return readOnlySelectedItems;
+        return selectedItems;
     }
-    private int row, column;
 
-    private void indexToRowColumn(int itemIndex) {
-        var columnCount = dataModel.getColumnCount();
-        row = itemIndex / columnCount;
-        column = itemIndex - (row * columnCount);
-    }
+    /**
+     * 要素が並び替えられたときに、並び替えられた範囲の選択状態を新しい位置に移す。
+     * @param from 並び替えられた範囲の先頭
+     * @param to 並び替えられた範囲の末尾(この値を含まない)
+     * @param permutation 並び替え前の要素インデックスから並び替え後の要素インデックスを返す関数
+     */
+    void permutate(int from, int to, IntUnaryOperator permutation) {
+        if (selection.isEmpty()) {
+            return;
+        }
 
-    private void itemToRowColumn(T item) {
-        var index = items.indexOf(item);
-        if (index < 0) {
-            throw new IllegalArgumentException();
+        // 並び替えた後の選択位置
+        var moved = new BitSet(to - from);
+        for (int r = selection.rangeAfter(from); r < selection.rangeCount(); r++) {
+            int start = Math.max(from, selection.rangeStart(r));
+            int end = Math.min(to, selection.rangeEnd(r));
+            if (to <= start) {
+                break;
+            }
+            for (int i = start; i < end; i++) {
+                moved.set(permutation.applyAsInt(i) - from);
+            }
         }
-        indexToRowColumn(index);
-    }
 
-    private TableColumn<TableDataRowModel<T>, ?> getColumn(int column) {
-        return tableView.getColumns().get(column);
-    }
+        if (moved.isEmpty()) {
+            return;
+        }
 
-    private void selectCell(int itemIndex) {
-        indexToRowColumn(itemIndex);
-        selectionModel.select(row, getColumn(column));
-    }
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        int count = 0;
+        for (int s = moved.nextSetBit(0); 0 <= s; s = moved.nextSetBit(moved.nextClearBit(s))) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = from + s;
+            ends[count] = from + moved.nextClearBit(s);
+            count++;
+        }
 
-    private void selectCell(T item) {
-        itemToRowColumn(item);
-        selectionModel.select(row, getColumn(column));
+        removedIndexMapper = permutation;
+        try {
+            selection.replace(from, to, starts, ends, count, recorder);
+            commit();
+        } finally {
+            removedIndexMapper = null;
+        }
+
+        var index = getSelectedIndex();
+        if (from <= index && index < to) {
+            updateSelectedIndex(permutation.applyAsInt(index));
+        }
     }
 
     @Override
     public void selectIndices(int index, int... indices) {
-        selectCell(index);
+        flushDeferredChanges();
+
+        int count = getItemCount();
+
+        int[] sorted = Arrays.copyOf(indices, indices.length + 1);
+        sorted[indices.length] = index;
+        Arrays.sort(sorted);
+
+        for (int i : sorted) {
+            if (0 <= i && i < count) {
+                selection.add(i, i + 1, recorder);
+            }
+        }
+        commit();
+
+        // 最後に指定されたインデックスを選択インデックスにする
+        int last = indices.length == 0 ? index : indices[indices.length - 1];
+        if (0 <= last && last < count) {
+            updateSelectedIndex(last);
+        } else {
+            validateSelectedIndex();
+        }
+    }
+
+    /**
+     * 指定の範囲の要素を選択する。startがendより大きいときはendの次からstartまでを選択する。
+     * @param start 先頭(この値を含む)
+     * @param end 末尾(この値を含まない)
+     */
+    @Override
+    public void selectRange(int start, int end) {
+        flushDeferredChanges();
 
-        for (var i : indices) {
-            selectCell(i);
+        if (start == end) {
+            return;
         }
+
+        int count = getItemCount();
+        int from = start < end ? start : end + 1;
+        int to = start < end ? end : start + 1;
+        from = Math.max(0, from);
+        to = Math.min(count, to);
+        if (to <= from) {
+            return;
+        }
+
+        selection.add(from, to, recorder);
+        commit();
+
+        updateSelectedIndex(start < end ? to - 1 : from);
     }
 
     @Override
     public void selectAll() {
-        selectionModel.selectAll();
+        flushDeferredChanges();
+
+        int count = getItemCount();
+        if (count == 0) {
+            return;
+        }
+
+        selection.add(0, count, recorder);
+        commit();
+
+        updateSelectedIndex(count - 1);
+    }
+
+    /**
+     * すべての要素の選択状態を反転する。
+     */
+    public void invertSelection() {
+        flushDeferredChanges();
+
+        int count = getItemCount();
+        if (count == 0) {
+            return;
+        }
+
+        selection.flip(0, count, recorder);
+        commit();
+
+        validateSelectedIndex();
     }
 
     @Override
     public void clearAndSelect(int index) {
-        selectionModel.clearSelection();
-        selectCell(index);
+        flushDeferredChanges();
+
+        if (index < 0 || getItemCount() <= index) {
+            clearSelection();
+            return;
+        }
+
+        // 選択の解除と選択を一度の変更として通知する
+        retainedKeys.clear();
+        selection.clear(recorder);
+        selection.add(index, index + 1, recorder);
+        commit();
+
+        updateSelectedIndex(index);
     }
 
     @Override
     public void select(int index) {
-        selectCell(index);
+        flushDeferredChanges();
+
+        if (index < 0 || getItemCount() <= index) {
+            return;
+        }
+
+        selection.add(index, index + 1, recorder);
+        commit();
+
+        updateSelectedIndex(index);
     }
 
     @Override
     public void select(T obj) {
-        selectCell(obj);
+        if (items == null) {
+            return;
+        }
+
+        var index = dataModel.indexOf(obj);
+        if (index < 0) {
+            throw new IllegalArgumentException();
+        }
+        select(index);
     }
 
     @Override
     public void clearSelection(int index) {
-        indexToRowColumn(index);
-        selectionModel.clearSelection(row, getColumn(column));
+        flushDeferredChanges();
+
+        selection.remove(index, index + 1, recorder);
+        commit();
+
+        validateSelectedIndex();
     }
 
     @Override
     public void clearSelection() {
-        selectionModel.clearSelection();
-        selectedItems.clear();
-        selectedIndices.clear();
-        setSelectedItem(null);
-        setSelectedIndex(-1);
+        flushDeferredChanges();
+
+        clearAll();
+    }
+
+    private void clearAll() {
+        retainedKeys.clear();
+        selection.clear(recorder);
+        commit();
+
+        updateSelectedIndex(-1);
     }
 
     @Override
     public boolean isSelected(int index) {
-        indexToRowColumn(index);
-        return selectionModel.isSelected(row, getColumn(column));
+        return selection.contains(index);
     }
 
     @Override
     public boolean isEmpty() {
-        return selectedItems.isEmpty() && selectedIndices.isEmpty();
+        return selection.isEmpty();
     }
 
     @Override
@@ -206,19 +679,19 @@ public class DynamicTableViewSelectionModel<T> extends MultipleSelectionModel<T>
 
     @Override
     public void selectNext() {
-        if (items.isEmpty()) {
+        if (getItemCount() == 0) {
             return;
         }
 
         var itemIndex = getSelectedIndex();
-        if (itemIndex + 1 < items.size()) {
+        if (itemIndex + 1 < getItemCount()) {
             select(itemIndex + 1);
         }
     }
 
     @Override
     public void selectFirst() {
-        if (items.isEmpty()) {
+        if (getItemCount() == 0) {
             return;
         }
 
@@ -227,10 +700,155 @@ public class DynamicTableViewSelectionModel<T> extends MultipleSelectionModel<T>
 
     @Override
     public void selectLast() {
-        if (items.isEmpty()) {
+        if (getItemCount() == 0) {
             return;
         }
 
-        select(items.size() - 1);
+        select(getItemCount() - 1);
+    }
+
+    /**
+     * 選択されている要素インデックスを昇順に返すビュー
+     */
+    private class SelectedIndices extends ObservableListBase<Integer> {
+
+        @Override
+        public Integer get(int index) {
+            return selection.get(index);
+        }
+
+        @Override
+        public int size() {
+            return selection.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Integer && selection.contains((Integer) o);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof Integer) || !selection.contains((Integer) o)) {
+                return -1;
+            }
+            return selection.rank((Integer) o);
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+
+        void fire(ListChangeListener.Change<Integer> change) {
+            fireChange(change);
+        }
+    }
+
+    /**
+     * 選択されている要素をインデックスの昇順に返すビュー
+     */
+    private class SelectedItems extends ObservableListBase<T> {
+
+        @Override
+        public T get(int index) {
+            return items.get(selection.get(index));
+        }
+
+        @Override
+        public int size() {
+            return selection.size();
+        }
+
+        void fire(ListChangeListener.Change<T> change) {
+            fireChange(change);
+        }
+    }
+
+    /**
+     * 連続したインデックスのリスト
+     */
+    private static final class IndexRange extends AbstractList<Integer> {
+
+        private final int from;
+
+        private final int to;
+
+        IndexRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || to - from <= index) {
+                throw new IndexOutOfBoundsException("index: " + index);
+            }
+            return from + index;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /**
+     * ずれる前のインデックスを返すリスト
+     */
+    private final class ShiftedIndices extends AbstractList<Integer> {
+
+        private final int position;
+
+        private final int length;
+
+        private final int delta;
+
+        ShiftedIndices(int position, int length, int delta) {
+            this.position = position;
+            this.length = length;
+            this.delta = delta;
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || length <= index) {
+                throw new IndexOutOfBoundsException("index: " + index);
+            }
+            return selection.get(position + index) - delta;
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+
+    /**
+     * 必要になったときに要素を求めるリスト
+     */
+    private static final class LazyList<E> extends AbstractList<E> {
+
+        private final int size;
+
+        private final IntFunction<E> getter;
+
+        LazyList(int size, IntFunction<E> getter) {
+            this.size = size;
+            this.getter = getter;
+        }
+
+        @Override
+        public E get(int index) {
+            if (index < 0 || size <= index) {
+                throw new IndexOutOfBoundsException("index: " + index);
+            }
+            return getter.apply(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
 }
@@ -0,0 +1,573 @@
+package io.github.k7t3.javafx;
+
+import javafx.animation.PauseTransition;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.scene.control.SkinBase;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * {@link DynamicTableView}のスキンに共通する処理。
+ * <p>
+ *     要素の変更の反映、列数の計算、列の管理を行う。
+ *     要素の表示方法はサブクラスで実装する。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+abstract class DynamicTableViewSkinBase<T> extends SkinBase<DynamicTableView<T>> {
+
+    private static final System.Logger LOGGER = System.getLogger(DynamicTableViewSkinBase.class.getName());
+
+    protected final IntegerProperty columnCountProperty = new SimpleIntegerProperty();
+
+    protected final DynamicTableView<T> control;
+
+    protected final PulseScheduler pulseScheduler;
+
+    /**
+     * スクロールを追跡して要素を準備させる。サブクラスが表示に使うフローを割り当てる。
+     */
+    protected final ScrollTracker<T> scrollTracker;
+
+    protected DynamicTableViewSkinBase(DynamicTableView<T> control) {
+        super(control);
+        this.control = getSkinnable();
+        this.pulseScheduler = new PulseScheduler(control);
+        this.scrollTracker = new ScrollTracker<>(control, pulseScheduler);
+        this.fixedCellSize = control.usesFixedCellSize();
+        init();
+    }
+
+    /**
+     * 指定の行が表示されるようにスクロールする。
+     * @param rowIndex 行インデックス
+     */
+    abstract void scrollToRow(int rowIndex);
+
+    /**
+     * 列数が変更されたときに呼び出される。
+     * @param columnCount 新しい列数
+     */
+    protected void onColumnCountChanged(int columnCount) {
+        // no-op
+    }
+
+    /**
+     * 固定サイズモードが切り替わったときに呼び出される。
+     * @param fixedCellSize 固定サイズモードが有効になったときはtrue
+     */
+    protected void onCellSizeModeChanged(boolean fixedCellSize) {
+        // no-op
+    }
+
+    /**
+     * 保留していた要素の変更を反映したあとに呼び出される。
+     * 行を購読せずに要素を表示するスキンが、表示し直す範囲を決めるために使う。
+     * @param from 位置が変わった要素の範囲の先頭
+     * @param to 位置が変わった要素の範囲の末尾(この値を含まない)。位置が変わっていないときは{@code from}以下
+     * @param updatedItems 内容が更新された要素のインデックス
+     * @param refreshAll 表示しているすべての要素が変わった可能性があるときはtrue
+     */
+    protected void onItemsChanged(int from, int to, BitSet updatedItems, boolean refreshAll) {
+        // no-op
+    }
+
+    /**
+     * 最後にクリックされた要素インデックス。Shiftキーを押しながらクリックしたときの範囲選択の起点になる。
+     */
+    private int anchor = -1;
+
+    /**
+     * 要素がクリックされたときに選択状態を変更する。
+     * TableViewを使わずに要素を表示するスキンから呼び出す。
+     * @param index 要素インデックス
+     * @param e マウスイベント
+     */
+    void itemPressed(int index, MouseEvent e) {
+        control.requestFocus();
+
+        if (index < 0 || control.getDataModel().getItemCount() <= index) {
+            return;
+        }
+
+        var selectionModel = control.getSelectionModel();
+
+        if (e.isShiftDown() && 0 <= anchor) {
+
+            selectionModel.clearSelection();
+            selectionModel.selectRange(anchor, anchor <= index ? index + 1 : index - 1);
+            return;
+
+        } else if (e.isShortcutDown()) {
+
+            if (selectionModel.isSelected(index)) {
+                selectionModel.clearSelection(index);
+            } else {
+                selectionModel.select(index);
+            }
+
+        } else {
+
+            selectionModel.clearAndSelect(index);
+
+        }
+
+        anchor = index;
+    }
+
+    /**
+     * 矢印キーなどで選択している要素を移動する。
+     * TableViewを使わずに要素を表示するスキンから呼び出す。
+     * @param e キーイベント
+     */
+    void navigate(KeyEvent e) {
+        int columnCount = control.getDataModel().getColumnCount();
+        int itemCount = control.getDataModel().getItemCount();
+        if (columnCount < 1 || itemCount == 0) {
+            return;
+        }
+
+        int current = control.getSelectionModel().getSelectedIndex();
+        int next;
+
+        switch (e.getCode()) {
+            case LEFT:
+                next = current - 1;
+                break;
+            case RIGHT:
+                next = current + 1;
+                break;
+            case UP:
+                next = current - columnCount;
+                break;
+            case DOWN:
+                next = current < 0 ? 0 : current + columnCount;
+                break;
+            case HOME:
+                next = 0;
+                break;
+            case END:
+                next = itemCount - 1;
+                break;
+            default:
+                return;
+        }
+
+        if (next < 0 || itemCount <= next) {
+            e.consume();
+            return;
+        }
+
+        control.getSelectionModel().clearAndSelect(next);
+        anchor = next;
+
+        scrollToRow(next / columnCount);
+        e.consume();
+    }
+
+    private final ListChangeListener<T> itemsListener = this::itemsChangeListener;
+
+    /**
+     * コントロールで管理される項目が変更されたときのリスナ
+     * @param c 変更
+     */
+    private void itemsChangeListener(ListChangeListener.Change<? extends T> c) {
+        while (c.next()) {
+            if (c.wasUpdated()) {
+
+                // 更新された要素を表示しているセルだけを更新する
+                for (int i = c.getFrom(); i < c.getTo(); i++) {
+                    pendingUpdatedItems.set(i);
+                }
+
+            } else if (c.wasPermutated()) {
+
+                // 並び替えられた範囲の要素を表示している行だけを更新する
+                addPendingChange(c.getFrom(), c.getTo());
+
+            } else {
+
+                if (c.getAddedSize() == c.getRemovedSize()) {
+                    // 置換された場合は後続の要素の位置は変わらない
+                    addPendingChange(c.getFrom(), c.getTo());
+                } else {
+                    // 追加・削除された位置から後ろの要素はすべてずれる
+                    addPendingChange(c.getFrom(), Integer.MAX_VALUE);
+                }
+            }
+        }
+
+        requestFlushItemChanges();
+    }
+
+    /**
+     * まだセルに反映していない、内容が更新された要素のインデックス
+     */
+    private final BitSet pendingUpdatedItems = new BitSet();
+
+    /**
+     * 要素の位置が変わったため、表示されているすべてのセルを更新する必要があるか
+     */
+    private boolean pendingRefreshAll = false;
+
+    /**
+     * まだ反映していない変更された要素の範囲の先頭
+     */
+    private int pendingFrom = Integer.MAX_VALUE;
+
+    /**
+     * まだ反映していない変更された要素の範囲の末尾(この値を含まない)
+     */
+    private int pendingTo = -1;
+
+    private final Runnable flushItemChanges = this::flushItemChanges;
+
+    private void addPendingChange(int from, int to) {
+        pendingFrom = Math.min(pendingFrom, from);
+        pendingTo = Math.max(pendingTo, to);
+
+        // 保留中の更新された要素の位置がずれるため、表示されているセルをすべて更新する
+        if (!pendingUpdatedItems.isEmpty()) {
+            pendingUpdatedItems.clear();
+            pendingRefreshAll = true;
+        }
+    }
+
+    private boolean hasPendingItemChanges() {
+        return pendingFrom < pendingTo
+                || !pendingUpdatedItems.isEmpty()
+                || pendingRefreshAll;
+    }
+
+    /**
+     * 保留中の要素の変更を、コントロールの設定に応じて反映する。
+     */
+    private void requestFlushItemChanges() {
+        if (!hasPendingItemChanges() || control.isUpdating()) {
+            // 更新中のときはendUpdate()で反映する
+            return;
+        }
+
+        if (control.isCoalesceItemChanges()) {
+            pulseScheduler.schedule(flushItemChanges);
+        } else {
+            flushItemChanges();
+        }
+    }
+
+    /**
+     * 保留中の要素の変更をまとめて反映する。
+     */
+    private void flushItemChanges() {
+        pulseScheduler.cancel(flushItemChanges);
+
+        int from = pendingFrom;
+        int to = pendingTo;
+        pendingFrom = Integer.MAX_VALUE;
+        pendingTo = -1;
+
+        if (from < to && !changingColumnCount) {
+            control.getDataModel().normalizeRows();
+            control.getDataModel().reflow(from, to);
+        }
+
+        boolean refreshAll = pendingRefreshAll;
+        if (refreshAll) {
+            pendingRefreshAll = false;
+            control.getDataModel().refreshLiveRows();
+        } else if (!pendingUpdatedItems.isEmpty()) {
+            for (int i = pendingUpdatedItems.nextSetBit(0); 0 <= i; i = pendingUpdatedItems.nextSetBit(i + 1)) {
+                control.getDataModel().refreshItem(i);
+            }
+        }
+
+        onItemsChanged(from, to, pendingUpdatedItems, refreshAll);
+        pendingUpdatedItems.clear();
+
+        // 行と同じタイミングで、保留していた選択状態の変更を通知する
+        control.getSelectionModel().flushDeferredChanges();
+    }
+
+    private ObservableList<T> observedItems;
+
+    private void init() {
+        LOGGER.log(System.Logger.Level.DEBUG, "init instance");
+
+        columnCountProperty.bindBidirectional(control.getDataModel().columnCountProperty());
+
+        // 表示する順に並んだリストにリスナを追加
+        // 並び替えは要素の並び替え(permutation)として、絞り込みは要素の追加と削除として通知されるため、
+        // 比較関数と条件の変更は監視しない
+        observeItems(control.getViewItems());
+        registerChangeListener(control.viewItemsProperty(), ob -> {
+            observeItems(control.getViewItems());
+
+            // 要素リストが置き換えられたときは、すべての行を更新する
+            addPendingChange(0, Integer.MAX_VALUE);
+            requestFlushItemChanges();
+        });
+
+        // 更新が終わったら保留していた変更を反映する
+        registerChangeListener(control.updatingProperty(), ob -> {
+            if (!control.isUpdating()) {
+                flushItemChanges();
+            }
+        });
+
+        registerChangeListener(control.widthProperty(), ob -> requestColumnCountUpdate());
+        registerChangeListener(control.cellWidthProperty(), ob -> requestColumnCountUpdate());
+        registerChangeListener(control.columnCountHysteresisProperty(), ob -> calculateColumnCount(control.getWidth()));
+        registerChangeListener(control.prefetcherProperty(), ob -> scrollTracker.reset());
+        registerChangeListener(control.prefetchRowsProperty(), ob -> scrollTracker.reset());
+        registerChangeListener(control.dataProviderProperty(), ob -> scrollTracker.reset());
+        registerChangeListener(control.fixedCellSizeProperty(), ob -> cellSizeModeChanged());
+        registerChangeListener(control.cellWidthProperty(), ob -> cellSizeModeChanged());
+        registerChangeListener(control.cellHeightProperty(), ob -> cellSizeModeChanged());
+
+        // 列数プロパティが変更されたら画面の列数を最適化
+        registerChangeListener(columnCountProperty, ob -> normalizeColumnCount());
+    }
+
+    /**
+     * すでに割り当てられている幅で列を作る。
+     * スキンが切り替えられたときのために、サブクラスの初期化が終わったあとに呼び出す。
+     */
+    protected final void fitColumnCount() {
+        if (0 < control.getWidth()) {
+            calculateColumnCount(control.getWidth());
+        }
+    }
+
+    private void observeItems(ObservableList<T> items) {
+        if (observedItems != null) {
+            observedItems.removeListener(itemsListener);
+        }
+
+        observedItems = items;
+
+        if (items != null) {
+            items.addListener(itemsListener);
+        }
+    }
+
+    private final Runnable updateColumnCount = () -> calculateColumnCount(control.getWidth());
+
+    private PauseTransition resizeIdleTimer;
+
+    /**
+     * {@link DynamicTableView#getResizePolicy()}に従って列数を更新する。
+     */
+    private void requestColumnCountUpdate() {
+        var policy = control.getResizePolicy();
+        if (policy == null) {
+            policy = ResizePolicy.IMMEDIATE;
+        }
+
+        switch (policy) {
+            case PER_PULSE:
+                pulseScheduler.schedule(updateColumnCount);
+                break;
+
+            case DEFERRED:
+                // まだ列がないときは待たずに列を作る
+                if (columnCountProperty.get() == 0) {
+                    updateColumnCount.run();
+                    break;
+                }
+
+                // 幅の変更が止まるまで現在の列数のまま表示する
+                if (resizeIdleTimer == null) {
+                    resizeIdleTimer = new PauseTransition();
+                    resizeIdleTimer.setOnFinished(e -> updateColumnCount.run());
+                }
+                resizeIdleTimer.setDuration(control.getResizeIdleDelay());
+                resizeIdleTimer.playFromStart();
+                break;
+
+            default:
+                updateColumnCount.run();
+                break;
+        }
+    }
+
+    /**
+     * 現在の画面サイズとセルのサイズを考慮して列数を更新する。
+     * <p>
+     *     列数は{@link DynamicTableView#getColumnCountHysteresis()}だけ境界を超えたときに変更する。
+     * </p>
+     * @param viewWidth 画面サイズ
+     */
+    private void calculateColumnCount(double viewWidth) {
+        double cellWidth = control.getCellWidth();
+        int currentCount = columnCountProperty.get();
+
+        int columnCount = Math.max(1, (int)(viewWidth / cellWidth));
+
+        if (0 < currentCount && columnCount != currentCount) {
+            double hysteresis = Math.max(0, control.getColumnCountHysteresis());
+
+            // 境界の前後で列数が繰り返し変わらないように、境界から離れたときだけ列数を変える
+            int increased = Math.max(1, (int)((viewWidth - hysteresis) / cellWidth));
+            int decreased = Math.max(1, (int)((viewWidth + hysteresis) / cellWidth));
+
+            if (currentCount < increased) {
+                columnCount = increased;
+            } else if (decreased < currentCount) {
+                columnCount = decreased;
+            } else {
+                columnCount = currentCount;
+            }
+        }
+
+        columnCountProperty.set(columnCount);
+    }
+
+    private boolean changingColumnCount = false;
+
+    /**
+     * 生成した列。列インデックスを添字とし、テーブルから取り外した列も取り付け直すために保持する。
+     * <p>
+     *     TableViewを表示しないスキンでも、選択状態はTableViewの列を使って管理する。
+     *     取り外した列のセルは行のスキンに残り、列を取り付け直すとそのまま使われる。
+     *     そのため保持している列のセルは{@link CellPool}に戻さず、
+     *     列を破棄するときにだけ戻すことで、セルの持ち主を常にひとつにしておく。
+     * </p>
+     */
+    private final List<DynamicTableColumn<T>> columnPool = new ArrayList<>();
+
+    /**
+     * 固定サイズモードが有効か
+     */
+    private boolean fixedCellSize;
+
+    private void cellSizeModeChanged() {
+        boolean fixed = control.usesFixedCellSize();
+        if (fixed == fixedCellSize) {
+            return;
+        }
+        fixedCellSize = fixed;
+
+        for (var column : columnPool) {
+            column.updateCellSizeMode();
+        }
+
+        onCellSizeModeChanged(fixed);
+    }
+
+    private DynamicTableColumn<T> obtainColumn(int columnIndex) {
+        if (columnIndex < columnPool.size()) {
+            var column = columnPool.get(columnIndex);
+            if (column.isCurrentCellFactory()) {
+                return column;
+            }
+
+            // 古いセルファクトリの列は、以降の列もまとめて破棄する
+            discardColumns(columnIndex);
+        }
+
+        var column = new DynamicTableColumn<>(control, columnIndex);
+        columnPool.add(column);
+        return column;
+    }
+
+    /**
+     * 指定の列インデックス以降の、テーブルから取り外している列を破棄してセルをプールに戻す。
+     */
+    private void discardColumns(int fromColumnIndex) {
+        var discarded = columnPool.subList(fromColumnIndex, columnPool.size());
+        for (var column : discarded) {
+            column.detach();
+        }
+        discarded.clear();
+    }
+
+    /**
+     * 取り外している列のセルの数が{@link DynamicTableView#getCellPoolSize()}を超えないように、
+     * 列インデックスの大きい列から破棄する。
+     */
+    private void trimDetachedColumns(int attachedCount) {
+        int maxCells = Math.max(0, control.getCellPoolSize());
+
+        int cellCount = 0;
+        int keep = attachedCount;
+        while (keep < columnPool.size()) {
+            cellCount += columnPool.get(keep).getCellCount();
+            if (maxCells < cellCount) {
+                break;
+            }
+            keep++;
+        }
+
+        if (keep < columnPool.size()) {
+            discardColumns(keep);
+        }
+    }
+
+    private void normalizeColumnCount() {
+        var columns = control.getTableView().getColumns();
+        int currentCount = columns.size();
+        int count = columnCountProperty.get();
+
+        if (currentCount == count) return;
+
+        changingColumnCount = true;
+
+        if (count < currentCount) {
+
+            // 取り外した列はセルとともに取り付け直すために残し、残しきれない列だけを破棄する
+            columns.remove(count, currentCount);
+            trimDetachedColumns(count);
+
+        } else {
+
+            var added = new ArrayList<DynamicTableColumn<T>>(count - currentCount);
+            for (int i = currentCount; i < count; i++) {
+                added.add(obtainColumn(i));
+            }
+            columns.addAll(added);
+
+        }
+
+        // 列数の変更に伴って行数も更新する
+        control.getDataModel().normalizeRows();
+
+        // すべての行を無効化して表示されている行だけを更新する
+        control.getDataModel().invalidateAll();
+
+        changingColumnCount = false;
+
+        // 列数が変わると要素の位置が変わるため、範囲選択の起点を忘れる
+        anchor = -1;
+
+        onColumnCountChanged(count);
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        scrollTracker.dispose();
+        pulseScheduler.dispose();
+        if (resizeIdleTimer != null) {
+            resizeIdleTimer.stop();
+        }
+
+        observeItems(null);
+
+        // 反映する前に破棄されたときも、保留していた選択状態の変更は通知する
+        control.getSelectionModel().flushDeferredChanges();
+
+        // 次のスキンが列を作り直せるように、列と行をすべて破棄する
+        control.getTableView().getColumns().clear();
+        columnPool.clear();
+        columnCountProperty.unbindBidirectional(control.getDataModel().columnCountProperty());
+        control.getDataModel().columnCountProperty().set(0);
+        control.getDataModel().dispose();
+    }
+}
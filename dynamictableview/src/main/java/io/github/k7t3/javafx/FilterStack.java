@@ -0,0 +1,165 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 段階的に絞り込んだフィルタと、段階ごとの絞り込みの結果を保持するスタック。
+ * <p>
+ *     絞り込むときは、現在フィルタを通過している要素だけを新しいフィルタで評価する。
+ *     段階ごとに通過した要素を覚えておき、一つ前の段階に戻すときはその結果を使うため、
+ *     フィルタは評価しない。要素リストが変更されたときは覚えている結果を破棄し、
+ *     戻すときにすべての段階のフィルタで評価し直す。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class FilterStack<T> {
+
+    private final FilteredList<T> filteredItems;
+
+    private final List<Level<T>> levels = new ArrayList<>();
+
+    private final ListChangeListener<T> sourceListener = c -> invalidate();
+
+    /**
+     * このスタックが{@link FilteredList}に割り当てたフィルタ
+     */
+    private Predicate<? super T> installed;
+
+    FilterStack(FilteredList<T> filteredItems) {
+        this.filteredItems = filteredItems;
+
+        // 現在のフィルタを最初の段階とする
+        levels.add(new Level<>(filteredItems.getPredicate(), collect(filteredItems, null)));
+
+        source().addListener(sourceListener);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ObservableList<T> source() {
+        return (ObservableList<T>) filteredItems.getSource();
+    }
+
+    /**
+     * このスタックが引数のリストに割り当てたフィルタが、そのまま使われているかを返す。
+     */
+    boolean isInstalled(FilteredList<T> list) {
+        return list == filteredItems && installed != null && list.getPredicate() == installed;
+    }
+
+    private static <T> Set<Object> collect(List<T> items, Predicate<? super T> predicate) {
+        Set<Object> passed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (var item : items) {
+            if (predicate == null || predicate.test(item)) {
+                passed.add(item);
+            }
+        }
+        return passed;
+    }
+
+    /**
+     * 現在フィルタを通過している要素を、引数のフィルタでさらに絞り込む。
+     * @param predicate 現在のフィルタを通過した要素に適用するフィルタ
+     */
+    void refine(Predicate<? super T> predicate) {
+        var passed = collect(filteredItems, predicate);
+        levels.add(new Level<>(predicate, passed));
+        install(passed);
+    }
+
+    /**
+     * 最後に絞り込む前の状態に戻す。
+     * @return 戻したときはtrue。絞り込んでいないときはfalse
+     */
+    boolean widen() {
+        if (levels.size() <= 1) {
+            return false;
+        }
+
+        levels.remove(levels.size() - 1);
+        install(levels.get(levels.size() - 1).passed);
+        return true;
+    }
+
+    private void install(Set<Object> resolved) {
+        var predicates = new ArrayList<Predicate<? super T>>(levels.size());
+        for (var level : levels) {
+            if (level.predicate != null) {
+                predicates.add(level.predicate);
+            }
+        }
+
+        var predicate = new RefinedPredicate<T>(predicates, resolved);
+        installed = predicate;
+        filteredItems.setPredicate(predicate);
+        predicate.release();
+    }
+
+    private void invalidate() {
+        for (var level : levels) {
+            level.passed = null;
+        }
+    }
+
+    void dispose() {
+        source().removeListener(sourceListener);
+        levels.clear();
+        installed = null;
+    }
+
+    private static final class Level<T> {
+
+        private final Predicate<? super T> predicate;
+
+        /**
+         * この段階のフィルタまでを通過した要素。要素リストが変更されたときはnull
+         */
+        private Set<Object> passed;
+
+        Level(Predicate<? super T> predicate, Set<Object> passed) {
+            this.predicate = predicate;
+            this.passed = passed;
+        }
+    }
+
+    /**
+     * すべての段階のフィルタを満たす要素を通過させるフィルタ。
+     * 割り当てるときは、分かっている絞り込みの結果を参照する。
+     */
+    private static final class RefinedPredicate<T> implements Predicate<T> {
+
+        private final List<Predicate<? super T>> predicates;
+
+        private Set<Object> resolved;
+
+        RefinedPredicate(List<Predicate<? super T>> predicates, Set<Object> resolved) {
+            this.predicates = predicates;
+            this.resolved = resolved;
+        }
+
+        @Override
+        public boolean test(T item) {
+            if (resolved != null) {
+                return resolved.contains(item);
+            }
+            for (var predicate : predicates) {
+                if (!predicate.test(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void release() {
+            resolved = null;
+        }
+    }
+}
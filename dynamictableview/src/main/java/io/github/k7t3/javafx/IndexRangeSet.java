@@ -0,0 +1,531 @@
+package io.github.k7t3.javafx;
+
+import java.util.Arrays;
+
+/**
+ * 整数インデックスの集合を、重ならない昇順の範囲の並びとして保持する。
+ * <p>
+ *     連続したインデックスは一つの範囲にまとめられるため、範囲単位の追加や削除は
+ *     要素数ではなく範囲の数に比例する時間で行える。
+ *     変更は{@link RangeListener}に範囲単位で通知される。
+ * </p>
+ */
+class IndexRangeSet {
+
+    /**
+     * 集合の変更を受け取るリスナ。
+     * <p>
+     *     位置は集合を昇順に並べたときの位置で、直前までの通知を反映したあとの位置を表す。
+     *     一度の操作で通知される位置は昇順に並ぶ。
+     * </p>
+     */
+    interface RangeListener {
+
+        /**
+         * インデックスが追加された。
+         * @param position 追加されたインデックスの先頭の位置
+         * @param from 追加されたインデックスの先頭
+         * @param to 追加されたインデックスの末尾(この値を含まない)
+         */
+        void added(int position, int from, int to);
+
+        /**
+         * インデックスが削除された。
+         * @param position 削除されたインデックスがあった位置
+         * @param from 削除されたインデックスの先頭
+         * @param to 削除されたインデックスの末尾(この値を含まない)
+         */
+        void removed(int position, int from, int to);
+
+        /**
+         * 位置はそのままで、インデックスの値がずれた。
+         * @param position ずれたインデックスの先頭の位置
+         * @param length ずれたインデックスの数
+         * @param delta ずれた量
+         */
+        void shifted(int position, int length, int delta);
+    }
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] starts = new int[DEFAULT_CAPACITY];
+
+    private int[] ends = new int[DEFAULT_CAPACITY];
+
+    /**
+     * 範囲の数
+     */
+    private int count = 0;
+
+    /**
+     * インデックスの数
+     */
+    private int size = 0;
+
+    /**
+     * 各範囲より前にあるインデックスの数。変更されると破棄し、必要になったときに作り直す。
+     */
+    private int[] offsets;
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int rangeCount() {
+        return count;
+    }
+
+    int rangeStart(int range) {
+        return starts[range];
+    }
+
+    int rangeEnd(int range) {
+        return ends[range];
+    }
+
+    /**
+     * @return 最小のインデックス。空のときは-1
+     */
+    int first() {
+        return count == 0 ? -1 : starts[0];
+    }
+
+    /**
+     * @return 最大のインデックス。空のときは-1
+     */
+    int last() {
+        return count == 0 ? -1 : ends[count - 1] - 1;
+    }
+
+    /**
+     * 指定のインデックス以下から始まる最後の範囲を返す。
+     */
+    private int floorRange(int index) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] <= index) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * 指定のインデックスより後ろで終わる最初の範囲を返す。
+     * @param index インデックス
+     * @return 範囲。そのような範囲がないときは範囲の数
+     */
+    int rangeAfter(int index) {
+        int range = floorRange(index);
+        return 0 <= range && index < ends[range] ? range : range + 1;
+    }
+
+    boolean contains(int index) {
+        int range = floorRange(index);
+        return 0 <= range && index < ends[range];
+    }
+
+    private int[] offsets() {
+        if (offsets == null) {
+            offsets = new int[count];
+            int sum = 0;
+            for (int i = 0; i < count; i++) {
+                offsets[i] = sum;
+                sum += ends[i] - starts[i];
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * 昇順に並べたときに指定の位置にあるインデックスを返す。
+     * @param position 位置
+     * @return インデックス
+     */
+    int get(int position) {
+        if (position < 0 || size <= position) {
+            throw new IndexOutOfBoundsException("position: " + position + ", size: " + size);
+        }
+
+        var offsets = offsets();
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return starts[low] + position - offsets[low];
+    }
+
+    /**
+     * 指定のインデックスより小さいインデックスの数を返す。
+     * @param index インデックス
+     * @return 指定のインデックスより小さいインデックスの数
+     */
+    int rank(int index) {
+        int range = floorRange(index);
+        if (range < 0) {
+            return 0;
+        }
+        return offsets()[range] + Math.min(index, ends[range]) - starts[range];
+    }
+
+    /**
+     * 指定の範囲のインデックスを追加する。
+     * @param from 先頭(この値を含む)
+     * @param to 末尾(この値を含まない)
+     * @param listener 変更を受け取るリスナ
+     */
+    void add(int from, int to, RangeListener listener) {
+        if (to <= from) {
+            return;
+        }
+
+        var buffer = new Buffer(count + 1);
+
+        int r = 0;
+        int before = 0;
+        while (r < count && ends[r] < from) {
+            buffer.append(starts[r], ends[r]);
+            before += ends[r] - starts[r];
+            r++;
+        }
+
+        // 重なる範囲、隣接する範囲をまとめながら、すき間を追加されたインデックスとして通知する
+        int cursor = from;
+        int added = 0;
+        int mergedStart = from;
+        int mergedEnd = to;
+        while (r < count && starts[r] <= to) {
+            int s = starts[r];
+            int e = ends[r];
+            if (cursor < s) {
+                listener.added(before + added, cursor, s);
+                added += s - cursor;
+            }
+            before += e - s;
+            cursor = Math.max(cursor, e);
+            mergedStart = Math.min(mergedStart, s);
+            mergedEnd = Math.max(mergedEnd, e);
+            r++;
+        }
+        if (cursor < to) {
+            listener.added(before + added, cursor, to);
+            added += to - cursor;
+        }
+
+        buffer.append(mergedStart, mergedEnd);
+        buffer.appendRest(r);
+
+        apply(buffer, size + added);
+    }
+
+    /**
+     * 指定の範囲のインデックスを削除する。
+     * @param from 先頭(この値を含む)
+     * @param to 末尾(この値を含まない)
+     * @param listener 変更を受け取るリスナ
+     */
+    void remove(int from, int to, RangeListener listener) {
+        if (to <= from || count == 0) {
+            return;
+        }
+
+        var buffer = new Buffer(count + 1);
+
+        int r = 0;
+        int before = 0;
+        while (r < count && ends[r] <= from) {
+            buffer.append(starts[r], ends[r]);
+            before += ends[r] - starts[r];
+            r++;
+        }
+
+        int removed = 0;
+        while (r < count && starts[r] < to) {
+            int s = starts[r];
+            int e = ends[r];
+            int a = Math.max(s, from);
+            int b = Math.min(e, to);
+
+            listener.removed(before + a - s - removed, a, b);
+            removed += b - a;
+
+            if (s < a) {
+                buffer.append(s, a);
+            }
+            if (b < e) {
+                buffer.append(b, e);
+            }
+            before += e - s;
+            r++;
+        }
+
+        if (removed == 0) {
+            return;
+        }
+
+        buffer.appendRest(r);
+        apply(buffer, size - removed);
+    }
+
+    /**
+     * 指定の範囲に含まれるインデックスを、引数の範囲の並びで置き換える。
+     * @param from 先頭(この値を含む)
+     * @param to 末尾(この値を含まない)
+     * @param rangeStarts 置き換える範囲の先頭。昇順で重ならず、fromからtoに含まれること
+     * @param rangeEnds 置き換える範囲の末尾(この値を含まない)
+     * @param rangeCount 置き換える範囲の数
+     * @param listener 変更を受け取るリスナ
+     */
+    void replace(int from, int to, int[] rangeStarts, int[] rangeEnds, int rangeCount, RangeListener listener) {
+        if (to <= from) {
+            return;
+        }
+
+        remove(from, to, listener);
+
+        if (rangeCount == 0) {
+            return;
+        }
+
+        var buffer = new Buffer(count + rangeCount);
+
+        int r = 0;
+        while (r < count && ends[r] <= from) {
+            buffer.append(starts[r], ends[r]);
+            r++;
+        }
+
+        int position = rank(from);
+        int added = 0;
+        for (int i = 0; i < rangeCount; i++) {
+            int s = rangeStarts[i];
+            int e = rangeEnds[i];
+            if (s < e) {
+                listener.added(position + added, s, e);
+                added += e - s;
+                buffer.append(s, e);
+            }
+        }
+
+        buffer.appendRest(r);
+        apply(buffer, size + added);
+    }
+
+    /**
+     * 指定の範囲のインデックスの有無を反転する。
+     * @param from 先頭(この値を含む)
+     * @param to 末尾(この値を含まない)
+     * @param listener 変更を受け取るリスナ
+     */
+    void flip(int from, int to, RangeListener listener) {
+        if (to <= from) {
+            return;
+        }
+
+        var buffer = new Buffer(count + 2);
+
+        int r = 0;
+        int position = 0;
+        while (r < count && ends[r] <= from) {
+            buffer.append(starts[r], ends[r]);
+            position += ends[r] - starts[r];
+            r++;
+        }
+
+        // 範囲の先頭から順に、含まれていた部分を削除し、すき間を追加する
+        int cursor = from;
+        int newSize = size;
+        while (r < count && starts[r] < to) {
+            int s = starts[r];
+            int e = ends[r];
+
+            if (s < from) {
+                // 反転する範囲の前にはみ出している部分は残す
+                buffer.append(s, from);
+                position += from - s;
+                s = from;
+            }
+
+            if (cursor < s) {
+                listener.added(position, cursor, s);
+                buffer.append(cursor, s);
+                position += s - cursor;
+                newSize += s - cursor;
+            }
+
+            int b = Math.min(e, to);
+            listener.removed(position, s, b);
+            newSize -= b - s;
+
+            if (to < e) {
+                buffer.append(to, e);
+            }
+            cursor = b;
+            r++;
+        }
+        if (cursor < to) {
+            listener.added(position, cursor, to);
+            buffer.append(cursor, to);
+            newSize += to - cursor;
+        }
+
+        buffer.appendRest(r);
+        apply(buffer, newSize);
+    }
+
+    /**
+     * 指定の位置にインデックスが挿入されたものとして、後ろのインデックスをずらす。
+     * 挿入されたインデックスは集合に含まれない。
+     * @param at 挿入された位置
+     * @param length 挿入された数
+     * @param listener 変更を受け取るリスナ
+     */
+    void insert(int at, int length, RangeListener listener) {
+        if (length <= 0 || count == 0 || last() < at) {
+            return;
+        }
+
+        int position = rank(at);
+        var buffer = new Buffer(count + 1);
+
+        for (int r = 0; r < count; r++) {
+            int s = starts[r];
+            int e = ends[r];
+            if (e <= at) {
+                buffer.append(s, e);
+            } else if (s < at) {
+                buffer.append(s, at);
+                buffer.append(at + length, e + length);
+            } else {
+                buffer.append(s + length, e + length);
+            }
+        }
+
+        apply(buffer, size);
+
+        listener.shifted(position, size - position, length);
+    }
+
+    /**
+     * 指定の位置のインデックスが削除されたものとして、集合から取り除き後ろのインデックスを詰める。
+     * @param at 削除された位置
+     * @param length 削除された数
+     * @param listener 変更を受け取るリスナ
+     */
+    void delete(int at, int length, RangeListener listener) {
+        if (length <= 0 || count == 0 || last() < at) {
+            return;
+        }
+
+        remove(at, at + length, listener);
+
+        int position = rank(at);
+        var buffer = new Buffer(count);
+
+        for (int r = 0; r < count; r++) {
+            int s = starts[r];
+            int e = ends[r];
+            if (e <= at) {
+                buffer.append(s, e);
+            } else {
+                buffer.append(s - length, e - length);
+            }
+        }
+
+        apply(buffer, size);
+
+        if (position < size) {
+            listener.shifted(position, size - position, -length);
+        }
+    }
+
+    void clear(RangeListener listener) {
+        if (count == 0) {
+            return;
+        }
+
+        for (int r = 0; r < count; r++) {
+            listener.removed(0, starts[r], ends[r]);
+        }
+
+        starts = new int[DEFAULT_CAPACITY];
+        ends = new int[DEFAULT_CAPACITY];
+        count = 0;
+        size = 0;
+        offsets = null;
+    }
+
+    /**
+     * 同じ範囲を持つ複製を返す。
+     * @return 複製
+     */
+    IndexRangeSet copy() {
+        var copy = new IndexRangeSet();
+        copy.starts = Arrays.copyOf(starts, Math.max(DEFAULT_CAPACITY, count));
+        copy.ends = Arrays.copyOf(ends, Math.max(DEFAULT_CAPACITY, count));
+        copy.count = count;
+        copy.size = size;
+        return copy;
+    }
+
+    private void apply(Buffer buffer, int newSize) {
+        starts = buffer.starts;
+        ends = buffer.ends;
+        count = buffer.count;
+        size = newSize;
+        offsets = null;
+    }
+
+    /**
+     * 新しい範囲の並びを作るバッファ。隣接する範囲はまとめる。
+     */
+    private class Buffer {
+
+        private int[] starts;
+
+        private int[] ends;
+
+        private int count = 0;
+
+        Buffer(int capacity) {
+            int length = Math.max(DEFAULT_CAPACITY, capacity);
+            starts = new int[length];
+            ends = new int[length];
+        }
+
+        void append(int start, int end) {
+            if (0 < count && ends[count - 1] == start) {
+                ends[count - 1] = end;
+                return;
+            }
+
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        void appendRest(int from) {
+            for (int r = from; r < IndexRangeSet.this.count; r++) {
+                append(IndexRangeSet.this.starts[r], IndexRangeSet.this.ends[r]);
+            }
+        }
+    }
+}
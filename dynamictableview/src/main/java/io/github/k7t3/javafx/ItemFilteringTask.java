@@ -0,0 +1,136 @@
+package io.github.k7t3.javafx;
+
+import javafx.concurrent.Task;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * {@link DynamicTableView#getItems()}のスナップショットに対してフィルタを並列に評価し、
+ * 評価が終わったときに{@link DynamicTableView#getFilteredItems()}に一度で反映するタスク。
+ * <p>
+ *     フィルタの評価は{@link java.util.concurrent.ForkJoinPool#commonPool()}で並列に行うため、
+ *     フィルタはスレッドセーフであること。反映するときは、スナップショットにある要素については
+ *     評価結果を参照するだけでフィルタは呼び出さない。
+ * </p>
+ * <p>
+ *     評価している間に要素リストに追加された要素は、反映するときにフィルタで評価する。
+ *     反映したあとは、追加や更新された要素を通常どおりフィルタで評価する。
+ *     新しいフィルタで{@link DynamicTableView#filterAsync(Predicate)}が呼び出されたときは
+ *     このタスクはキャンセルされ、結果は反映されない。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ * @see DynamicTableView#filterAsync(Predicate)
+ */
+public class ItemFilteringTask<T> extends Task<Integer> {
+
+    private final DynamicTableView<T> control;
+
+    private final Predicate<? super T> predicate;
+
+    private final Object[] snapshot;
+
+    /**
+     * スナップショットの要素ごとの評価結果
+     */
+    private Map<Object, Boolean> results;
+
+    ItemFilteringTask(DynamicTableView<T> control, Predicate<? super T> predicate) {
+        this.control = Objects.requireNonNull(control);
+        this.predicate = Objects.requireNonNull(predicate);
+        this.snapshot = control.getItems().toArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Integer call() throws Exception {
+        int size = snapshot.length;
+        var passed = new boolean[size];
+
+        IntStream.range(0, size).parallel().forEach(i -> {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            passed[i] = predicate.test((T) snapshot[i]);
+        });
+
+        if (isCancelled()) {
+            return 0;
+        }
+
+        var map = new IdentityHashMap<Object, Boolean>(size);
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            map.put(snapshot[i], passed[i]);
+            if (passed[i]) {
+                count++;
+            }
+        }
+        results = map;
+
+        return count;
+    }
+
+    @Override
+    protected void succeeded() {
+        super.succeeded();
+
+        var filteredItems = control.getFilteredItems();
+        if (filteredItems != null && control.isCurrentFilteringTask(this)) {
+            // 評価結果を参照するフィルタで一度だけ絞り込み、その後は元のフィルタで評価する
+            var resolved = new ResolvedPredicate<>(predicate, results);
+            filteredItems.setPredicate(resolved);
+            resolved.release();
+        }
+        results = null;
+
+        control.filteringFinished(this);
+    }
+
+    @Override
+    protected void cancelled() {
+        super.cancelled();
+        results = null;
+        control.filteringFinished(this);
+    }
+
+    @Override
+    protected void failed() {
+        super.failed();
+        control.filteringFinished(this);
+    }
+
+    /**
+     * 評価済みの要素は評価結果を返し、それ以外の要素はフィルタで評価するフィルタ。
+     */
+    private static final class ResolvedPredicate<T> implements Predicate<T> {
+
+        private final Predicate<? super T> predicate;
+
+        private Map<Object, Boolean> results;
+
+        ResolvedPredicate(Predicate<? super T> predicate, Map<Object, Boolean> results) {
+            this.predicate = predicate;
+            this.results = results;
+        }
+
+        @Override
+        public boolean test(T item) {
+            if (results != null) {
+                var result = results.get(item);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return predicate.test(item);
+        }
+
+        void release() {
+            results = null;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 要素から表示順の要素インデックスを求める索引。
+ * <p>
+ *     要素(またはキー)から最後に分かっている要素インデックスへの対応を保持する。
+ *     要素が追加・削除されたときは、保持している対応を書き換えずに「この位置から後ろがこれだけずれた」という記録を残し、
+ *     検索した対応にだけ記録を当てはめる。削除された要素の対応はそのキーで取り除き、
+ *     追加された要素と更新された要素の対応だけを作る。並び替えられたときは並び替えられた範囲の対応だけを作り直す。
+ *     そのため変更にかかる時間は索引の大きさではなく、変更された要素の数に比例する。
+ * </p>
+ * <p>
+ *     まだ対応を作っていない範囲は、次に検索されたときに作る。ずれの記録が多くなりすぎたときや、
+ *     同じキーの要素が複数あるために削除された要素の代わりを探せないときは、変更された位置から後ろの対応を作り直す。
+ *     キーが変わった要素の古い対応は残ることがあるため、検索した対応は要素のキーと照らし合わせてから使う。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class ItemIndex<T> {
+
+    /**
+     * 索引を作り直すまでに記録するずれの数
+     */
+    private static final int MAX_SHIFTS = 1024;
+
+    private final Map<Object, Position> positions = new HashMap<>();
+
+    private final ListChangeListener<T> itemsListener = this::itemsChanged;
+
+    private ObservableList<T> items;
+
+    private Function<? super T, ?> keyExtractor;
+
+    /**
+     * この位置より前の対応は正しい。この位置から後ろを指す対応は信用しない
+     */
+    private int validUpTo = 0;
+
+    /**
+     * 同じキーの要素が複数見つかっているか
+     */
+    private boolean duplicated = false;
+
+    /**
+     * ずれた範囲の先頭
+     */
+    private int[] shiftFrom = new int[16];
+
+    /**
+     * ずれた量。負の値のときは、先頭からその大きさの範囲が削除されたことを表す
+     */
+    private int[] shiftDelta = new int[16];
+
+    private int shiftCount = 0;
+
+    ItemIndex(ObservableList<T> items, Function<? super T, ?> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        setItems(items);
+    }
+
+    void setItems(ObservableList<T> newItems) {
+        if (items != null) {
+            items.removeListener(itemsListener);
+        }
+
+        items = newItems;
+        clear();
+
+        if (newItems != null) {
+            newItems.addListener(itemsListener);
+        }
+    }
+
+    void setKeyExtractor(Function<? super T, ?> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        clear();
+    }
+
+    private void clear() {
+        positions.clear();
+        validUpTo = 0;
+        duplicated = false;
+        shiftCount = 0;
+    }
+
+    private Object keyOf(T item) {
+        if (item == null || keyExtractor == null) {
+            return item;
+        }
+        return keyExtractor.apply(item);
+    }
+
+    private boolean matches(int index, Object key) {
+        return 0 <= index && index < items.size() && Objects.equals(keyOf(items.get(index)), key);
+    }
+
+    private void itemsChanged(ListChangeListener.Change<? extends T> c) {
+        while (c.next()) {
+            int from = c.getFrom();
+            int to = c.getTo();
+
+            // 対応を作っていない範囲の変更は、検索されたときにまとめて反映する
+            if (validUpTo <= from) {
+                continue;
+            }
+
+            if (c.wasPermutated()) {
+
+                // 同じキーの要素が複数あるときは、先頭の要素が入れ替わった可能性がある
+                if (duplicated || validUpTo < to) {
+                    invalidate(from);
+                } else {
+                    remember(from, to);
+                }
+
+            } else if (c.wasUpdated() && keyExtractor == null) {
+
+                // キーは要素そのものなので変わらない
+
+            } else if (duplicated) {
+
+                // 取り除いた要素と同じキーの要素を探せないため、変更された位置から後ろを作り直す
+                invalidate(from);
+
+            } else if (c.wasUpdated() || PagedItemList.isPlaceholderChange(c)) {
+
+                // 要素の位置は変わらないため、変更された範囲の対応だけを作り直す
+                if (c.wasRemoved()) {
+                    forget(from, c.getRemoved());
+                }
+                remember(from, to);
+
+            } else {
+
+                // 記録が多くなりすぎて索引を作り直すことになったときは、shift()が有効な範囲を空にする
+                if (c.wasRemoved()) {
+                    int removedSize = c.getRemovedSize();
+                    forget(from, c.getRemoved());
+                    validUpTo = Math.max(from, validUpTo - removedSize);
+                    shift(from, -removedSize);
+                }
+                if (c.wasAdded() && from <= validUpTo) {
+                    validUpTo += to - from;
+                    shift(from, to - from);
+                    remember(from, to);
+                }
+
+            }
+        }
+    }
+
+    /**
+     * 指定の位置から後ろの対応を信用しないようにし、次に検索されたときに作り直す。
+     */
+    private void invalidate(int from) {
+        validUpTo = Math.min(validUpTo, from);
+    }
+
+    /**
+     * 指定の位置から後ろがずれたことを記録する。記録が多くなりすぎたときは索引を作り直す。
+     * @param from ずれた範囲の先頭
+     * @param delta ずれた量。負の値のときは、先頭からその大きさの範囲が削除されたことを表す
+     */
+    private void shift(int from, int delta) {
+        if (shiftCount == MAX_SHIFTS) {
+            clear();
+            return;
+        }
+        if (shiftCount == shiftFrom.length) {
+            shiftFrom = Arrays.copyOf(shiftFrom, shiftCount * 2);
+            shiftDelta = Arrays.copyOf(shiftDelta, shiftCount * 2);
+        }
+        shiftFrom[shiftCount] = from;
+        shiftDelta[shiftCount] = delta;
+        shiftCount++;
+    }
+
+    /**
+     * 対応にまだ当てはめていないずれを当てはめて、現在の位置を返す。
+     * @return 現在の位置。対応する要素が削除されていたときは-1
+     */
+    private int resolve(Position position) {
+        int index = position.index;
+        for (int i = position.version; i < shiftCount && 0 <= index; i++) {
+            int from = shiftFrom[i];
+            int delta = shiftDelta[i];
+            if (index < from) {
+                continue;
+            }
+            if (delta < 0 && index < from - delta) {
+                index = -1;
+            } else {
+                index += delta;
+            }
+        }
+        position.index = index;
+        position.version = shiftCount;
+        return index;
+    }
+
+    /**
+     * 削除された要素のうち、指定の位置を指している対応をキーで探して取り除く。
+     */
+    private void forget(int from, List<? extends T> removed) {
+        int count = Math.min(removed.size(), validUpTo - from);
+        for (int i = 0; i < count; i++) {
+            var item = removed.get(i);
+            if (item == null) {
+                continue;
+            }
+            var key = keyOf(item);
+            var position = positions.get(key);
+            if (position != null && resolve(position) == from + i) {
+                positions.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 有効な範囲にある、指定の範囲の要素の対応を作る。
+     */
+    private void remember(int from, int to) {
+        for (int i = from; i < Math.min(to, validUpTo); i++) {
+            put(i);
+        }
+    }
+
+    /**
+     * 無効な範囲の対応を作り直す。
+     */
+    private void rebuild() {
+        int size = items.size();
+        for (int i = validUpTo; i < size; i++) {
+            put(i);
+        }
+        validUpTo = size;
+    }
+
+    private void put(int i) {
+        var item = items.get(i);
+        if (item == null) {
+            return;
+        }
+
+        var key = keyOf(item);
+        var position = positions.get(key);
+        if (position == null) {
+            positions.put(key, new Position(i, shiftCount));
+            return;
+        }
+
+        // 同じキーの要素が複数あるときは先頭の要素の位置を保持する。キーが変わった要素の古い対応は上書きする
+        int index = resolve(position);
+        if (index != i && matches(index, key)) {
+            duplicated = true;
+            if (index < i) {
+                return;
+            }
+        }
+        position.index = i;
+        position.version = shiftCount;
+    }
+
+    /**
+     * 要素の表示順の要素インデックスを返す。
+     * @param item 要素
+     * @return 要素インデックス。含まれていないときは-1
+     */
+    int indexOf(T item) {
+        if (item == null) {
+            return -1;
+        }
+        return indexOfKey(keyOf(item));
+    }
+
+    /**
+     * キーが一致する要素の表示順の要素インデックスを返す。
+     * @param key キー
+     * @return 要素インデックス。含まれていないときは-1
+     */
+    int indexOfKey(Object key) {
+        if (items == null) {
+            return -1;
+        }
+
+        var hint = positions.get(key);
+        if (hint != null) {
+            int index = resolve(hint);
+            if (index < validUpTo && matches(index, key)) {
+                return index;
+            }
+            if (index < 0) {
+                // キーが変わったあとに削除された要素の古い対応
+                positions.remove(key);
+            }
+        }
+
+        if (validUpTo < items.size()) {
+            rebuild();
+        }
+
+        var position = positions.get(key);
+        if (position != null) {
+            int index = resolve(position);
+            if (matches(index, key)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    void dispose() {
+        setItems(null);
+    }
+
+    /**
+     * 要素インデックスと、その値にどこまでのずれを当てはめたか
+     */
+    private static final class Position {
+
+        private int index;
+
+        private int version;
+
+        Position(int index, int version) {
+            this.index = index;
+            this.version = version;
+        }
+    }
+}
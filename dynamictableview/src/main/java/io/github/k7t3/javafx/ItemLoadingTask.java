@@ -0,0 +1,238 @@
+package io.github.k7t3.javafx;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 要素をバックグラウンドスレッドで読み込み、フレームごとに少しずつ
+ * {@link DynamicTableView#getItems()}に追加するタスク。
+ * <p>
+ *     読み込みはバックグラウンドスレッドで行い、FXアプリケーションスレッドでは
+ *     1フレームあたり{@link #FRAME_BUDGET_MILLIS}ミリ秒を上限として要素を追加する。
+ *     最初のチャンクは小さくしているため、最初の画面はすぐに表示される。
+ * </p>
+ * <p>
+ *     {@link #getLoadedCount()}は追加された要素の数を表す。要素の総数が分かっている場合は
+ *     {@link #getProgress()}で進捗を取得できる。{@link #cancel()}で読み込みを中止すると、
+ *     それまでに追加された要素はそのまま残る。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ * @see DynamicTableView#loadItemsAsync(java.util.stream.Stream)
+ */
+public class ItemLoadingTask<T> extends Task<Integer> {
+
+    /**
+     * 1フレームあたりに要素の追加に使う時間の上限(ミリ秒)
+     */
+    public static final long FRAME_BUDGET_MILLIS = 8;
+
+    private static final int FIRST_CHUNK_SIZE = 128;
+
+    private static final int CHUNK_SIZE = 2048;
+
+    private static final int QUEUE_CAPACITY = 16;
+
+    private final DynamicTableView<T> control;
+
+    private final ObservableList<T> items;
+
+    private final Iterator<? extends T> source;
+
+    private final long totalCount;
+
+    private final BlockingQueue<List<T>> chunks = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    /**
+     * すべての要素を読み込んだことを表す番兵
+     */
+    private final List<T> endOfItems = new ArrayList<>(0);
+
+    private final CountDownLatch appliedLatch = new CountDownLatch(1);
+
+    /**
+     * 要素の追加を終えたか。終えたあとは読み込んだ要素をキューに入れない
+     */
+    private volatile boolean applyingFinished = false;
+
+    /**
+     * FXアプリケーションスレッドで要素を追加したときに発生した例外
+     */
+    private volatile Throwable applyError;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            applyChunks();
+        }
+    };
+
+    /**
+     * FXアプリケーションスレッドで追加した要素の数
+     */
+    private volatile int appliedCount = 0;
+
+    private final ReadOnlyIntegerWrapper loadedCount = new ReadOnlyIntegerWrapper(0);
+
+    /**
+     * これまでに{@link DynamicTableView#getItems()}に追加された要素の数を返す。
+     * @return 追加された要素の数
+     */
+    public int getLoadedCount() {
+        return loadedCount.get();
+    }
+
+    /**
+     * これまでに{@link DynamicTableView#getItems()}に追加された要素の数を表すプロパティ。
+     * 要素の総数が分からない場合でも更新される。
+     * @return 追加された要素の数を表すプロパティ
+     */
+    public ReadOnlyIntegerProperty loadedCountProperty() {
+        return loadedCount.getReadOnlyProperty();
+    }
+
+    ItemLoadingTask(DynamicTableView<T> control, Iterator<? extends T> source, long totalCount) {
+        this.control = Objects.requireNonNull(control);
+        this.items = Objects.requireNonNull(control.getItems());
+        this.source = Objects.requireNonNull(source);
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * フレームごとの要素の追加を開始する。
+     */
+    void startApplying() {
+        timer.start();
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        int chunkSize = FIRST_CHUNK_SIZE;
+        var chunk = new ArrayList<T>(chunkSize);
+
+        while (source.hasNext()) {
+            if (isCancelled()) {
+                return appliedCount;
+            }
+
+            chunk.add(source.next());
+
+            if (chunk.size() == chunkSize) {
+                if (!enqueue(chunk)) {
+                    break;
+                }
+                chunkSize = CHUNK_SIZE;
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+
+        if (!applyingFinished) {
+            if (chunk.isEmpty() || enqueue(chunk)) {
+                enqueue(endOfItems);
+            }
+        }
+
+        // すべての要素がFXアプリケーションスレッドで追加されるまで待つ
+        appliedLatch.await();
+
+        // 追加に失敗したときは、その例外でタスクを失敗させる
+        var error = applyError;
+        if (error instanceof Exception) {
+            throw (Exception) error;
+        } else if (error != null) {
+            throw (Error) error;
+        }
+
+        return appliedCount;
+    }
+
+    /**
+     * 読み込んだ要素をキューに入れる。キューがいっぱいの間は待つが、要素の追加が終わったときはあきらめる。
+     * @return キューに入れたときはtrue
+     */
+    private boolean enqueue(List<T> chunk) throws InterruptedException {
+        while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (applyingFinished) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 予算の範囲で読み込まれた要素を追加する。FXアプリケーションスレッドで呼び出される。
+     */
+    private void applyChunks() {
+        try {
+            applyChunksInBudget();
+        } catch (RuntimeException | Error e) {
+            // タイマーを止めてラッチを解放し、読み込み側のスレッドに失敗を伝える
+            applyError = e;
+            finishApplying();
+        }
+    }
+
+    private void applyChunksInBudget() {
+        if (isCancelled()) {
+            finishApplying();
+            return;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FRAME_BUDGET_MILLIS);
+
+        // このフレームで追加した要素はまとめて反映する
+        control.beginUpdate();
+        try {
+            while (System.nanoTime() < deadline) {
+                var chunk = chunks.poll();
+                if (chunk == null) {
+                    break;
+                }
+
+                if (chunk == endOfItems) {
+                    updateProgress(appliedCount, appliedCount);
+                    finishApplying();
+                    return;
+                }
+
+                items.addAll(chunk);
+                appliedCount += chunk.size();
+                loadedCount.set(appliedCount);
+            }
+        } finally {
+            control.endUpdate();
+        }
+
+        updateProgress(appliedCount, totalCount);
+    }
+
+    private void finishApplying() {
+        applyingFinished = true;
+        timer.stop();
+        chunks.clear();
+        appliedLatch.countDown();
+    }
+
+    @Override
+    protected void cancelled() {
+        super.cancelled();
+        finishApplying();
+    }
+
+    @Override
+    protected void failed() {
+        super.failed();
+        finishApplying();
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+/**
+ * {@link DynamicTableView#getFilteredItems()}のスナップショットをバックグラウンドで並列に並び替え、
+ * 並び替えが終わったときに{@link DynamicTableView#getSortedItems()}に一度で反映するタスク。
+ * <p>
+ *     並び替えは{@link Arrays#parallelSort(Object[], Comparator)}で行うため、比較関数はスレッドセーフであること。
+ *     並び替えた結果は要素の位置の並び順として保持し、反映するときは並び順をそのまま設定するため、
+ *     FXアプリケーションスレッドでは並び替えも比較関数の呼び出しも行わない。
+ *     並び替えの結果は一度の要素の並び替えとして通知されるため、
+ *     更新されるのは位置が変わった要素を表示しているセルだけになる。
+ * </p>
+ * <p>
+ *     反映したあとに追加された要素は、比較関数で比較して挿入する位置を探す。
+ *     並び替えている間に要素が変わったときは並び順を使えないため、反映するときに比較関数で並び替え直す。
+ *     新しい比較関数で{@link DynamicTableView#sortAsync(Comparator)}が呼び出されたときは
+ *     このタスクはキャンセルされ、結果は反映されない。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ * @see DynamicTableView#sortAsync(Comparator)
+ */
+public class ItemSortingTask<T> extends Task<Void> {
+
+    private final DynamicTableView<T> control;
+
+    private final Comparator<? super T> comparator;
+
+    private final FilteredList<T> filteredItems;
+
+    private final Object[] snapshot;
+
+    /**
+     * スナップショットの要素の位置を並び替えた順に並べたもの
+     */
+    private int[] order;
+
+    ItemSortingTask(DynamicTableView<T> control, Comparator<? super T> comparator) {
+        this.control = Objects.requireNonNull(control);
+        this.comparator = Objects.requireNonNull(comparator);
+        this.filteredItems = control.getFilteredItems();
+        this.snapshot = filteredItems.toArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+        return comparator.compare((T) a, (T) b);
+    }
+
+    @Override
+    protected Void call() throws Exception {
+        var indices = new Integer[snapshot.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+
+        // 安定な並び替えなので、等しい要素は元の順のまま並ぶ
+        Arrays.parallelSort(indices, (a, b) -> compare(snapshot[a], snapshot[b]));
+
+        if (isCancelled()) {
+            return null;
+        }
+
+        var sorted = new int[indices.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = indices[i];
+        }
+        order = sorted;
+
+        return null;
+    }
+
+    /**
+     * スナップショットを取ってから要素が変わっていないかを返す。
+     */
+    private boolean isSnapshotOf(OrderedItemList<T> orderedItems) {
+        if (orderedItems.getSource() != filteredItems || filteredItems.size() != snapshot.length) {
+            return false;
+        }
+        for (int i = 0; i < snapshot.length; i++) {
+            if (filteredItems.get(i) != snapshot[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void succeeded() {
+        super.succeeded();
+
+        var sortedItems = control.getSortedItems();
+        if (sortedItems != null && control.isCurrentSortingTask(this)) {
+            var orderedItems = control.getOrderedItems();
+            if (orderedItems != null && isSnapshotOf(orderedItems)) {
+                // 並び順を設定してから比較関数を外すと、並び替えは一度だけ通知される
+                orderedItems.applyOrder(order, comparator);
+                sortedItems.setComparator(null);
+            } else {
+                if (orderedItems != null) {
+                    orderedItems.resetOrder();
+                }
+                sortedItems.setComparator(comparator);
+            }
+        }
+        order = null;
+
+        control.sortingFinished(this);
+    }
+
+    @Override
+    protected void cancelled() {
+        super.cancelled();
+        order = null;
+        control.sortingFinished(this);
+    }
+
+    @Override
+    protected void failed() {
+        super.failed();
+        control.sortingFinished(this);
+    }
+}
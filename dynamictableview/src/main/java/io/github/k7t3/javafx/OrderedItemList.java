@@ -0,0 +1,300 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.TransformationList;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link DynamicTableView#getFilteredItems()}と{@link DynamicTableView#getSortedItems()}の間に置き、
+ * バックグラウンドで求めた並び順を一度の並び替え(permutation)として反映するリスト。
+ * <p>
+ *     {@link javafx.collections.transformation.SortedList}は比較関数を設定するとFXアプリケーションスレッドで
+ *     すべての要素を並び替えるため、{@link ItemSortingTask}が求めた並び順はこのリストに設定する。
+ *     並び順を設定していないときは元のリストと同じ順になり、変更はそのまま通知する。
+ * </p>
+ * <p>
+ *     並び順を設定したあとに追加された要素は、並び順を求めた比較関数で挿入する位置を探す。
+ *     削除された要素は並び順から取り除くだけで、残りの要素の順は変わらない。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class OrderedItemList<T> extends TransformationList<T, T> {
+
+    /**
+     * 表示順の位置から元のリストの位置への対応。並び順を設定していないときはnull
+     */
+    private int[] order;
+
+    /**
+     * 元のリストの位置から表示順の位置への対応
+     */
+    private int[] positions;
+
+    /**
+     * 並び順を求めた比較関数
+     */
+    private Comparator<? super T> comparator;
+
+    /**
+     * 変更を反映している間に追加された要素の数。追加された要素は並び順の末尾に仮に置いておく。
+     */
+    private int pendingCount = 0;
+
+    OrderedItemList(ObservableList<? extends T> source) {
+        super(source);
+    }
+
+    /**
+     * 並び順が設定されているかを返す。
+     * @return 並び順が設定されているときはtrue
+     */
+    boolean isOrdered() {
+        return order != null;
+    }
+
+    @Override
+    public int size() {
+        return getSource().size();
+    }
+
+    @Override
+    public T get(int index) {
+        return getSource().get(getSourceIndex(index));
+    }
+
+    @Override
+    public int getSourceIndex(int index) {
+        Objects.checkIndex(index, size());
+        return order == null ? index : order[index];
+    }
+
+    @Override
+    public int getViewIndex(int index) {
+        Objects.checkIndex(index, size());
+        return order == null ? index : positions[index];
+    }
+
+    /**
+     * 並び順を設定し、一度の並び替えとして通知する。
+     * @param newOrder 元のリストの位置を表示順に並べた配列。大きさはこのリストと同じであること
+     * @param comparator 並び順を求めた比較関数。あとから追加された要素の位置を探すときに使う
+     */
+    void applyOrder(int[] newOrder, Comparator<? super T> comparator) {
+        int size = size();
+        if (newOrder.length != size) {
+            throw new IllegalArgumentException("order length " + newOrder.length + " does not match size " + size);
+        }
+
+        // 今の表示位置から新しい表示位置への対応
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[getViewIndex(newOrder[i])] = i;
+        }
+
+        order = newOrder;
+        this.comparator = Objects.requireNonNull(comparator);
+        updatePositions();
+
+        firePermutation(permutation);
+    }
+
+    /**
+     * 並び順を解除し、元のリストと同じ順に戻したことを並び替えとして通知する。
+     */
+    void resetOrder() {
+        if (order == null) {
+            return;
+        }
+
+        // 表示位置から元のリストの位置への対応が、そのまま新しい表示位置への対応になる
+        var permutation = order;
+        order = null;
+        positions = null;
+        comparator = null;
+
+        firePermutation(permutation);
+    }
+
+    private void firePermutation(int[] permutation) {
+        if (permutation.length == 0) {
+            return;
+        }
+        beginChange();
+        nextPermutation(0, permutation.length, permutation);
+        endChange();
+    }
+
+    private void updatePositions() {
+        if (positions == null || positions.length != order.length) {
+            positions = new int[order.length];
+        }
+        for (int i = 0; i < order.length; i++) {
+            positions[order[i]] = i;
+        }
+    }
+
+    @Override
+    protected void sourceChanged(ListChangeListener.Change<? extends T> c) {
+        beginChange();
+        try {
+            while (c.next()) {
+                if (order == null) {
+                    forward(c);
+                } else if (c.wasPermutated()) {
+                    permutate(c);
+                } else if (c.wasUpdated()) {
+                    for (int i = c.getFrom(); i < c.getTo(); i++) {
+                        nextUpdate(positions[i]);
+                    }
+                } else {
+                    if (c.wasRemoved()) {
+                        removed(c.getFrom(), c.getRemoved());
+                    }
+                    if (c.wasAdded()) {
+                        added(c.getFrom(), c.getTo());
+                    }
+                }
+            }
+
+            // 元のリストの要素は変更をすべて反映したあとの位置でしか参照できないため、最後にまとめて挿入する
+            if (0 < pendingCount) {
+                insertPending();
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    /**
+     * 並び順を設定していないときに、変更をそのまま通知する。
+     */
+    private void forward(ListChangeListener.Change<? extends T> c) {
+        if (c.wasPermutated()) {
+            int[] permutation = new int[size()];
+            for (int i = 0; i < permutation.length; i++) {
+                permutation[i] = c.getFrom() <= i && i < c.getTo() ? c.getPermutation(i) : i;
+            }
+            nextPermutation(0, permutation.length, permutation);
+        } else if (c.wasUpdated()) {
+            for (int i = c.getFrom(); i < c.getTo(); i++) {
+                nextUpdate(i);
+            }
+        } else if (c.wasReplaced()) {
+            nextReplace(c.getFrom(), c.getTo(), c.getRemoved());
+        } else if (c.wasRemoved()) {
+            nextRemove(c.getFrom(), c.getRemoved());
+        } else if (c.wasAdded()) {
+            nextAdd(c.getFrom(), c.getTo());
+        }
+    }
+
+    /**
+     * 元のリストが並び替えられたときは、表示順を変えずに元のリストの位置だけを付け替える。
+     */
+    private void permutate(ListChangeListener.Change<? extends T> c) {
+        for (int i = 0; i < order.length; i++) {
+            int sourceIndex = order[i];
+            if (c.getFrom() <= sourceIndex && sourceIndex < c.getTo()) {
+                order[i] = c.getPermutation(sourceIndex);
+            }
+        }
+        updatePositions();
+    }
+
+    private void removed(int from, List<? extends T> removed) {
+        int to = from + removed.size();
+
+        // 後ろから通知すると、通知する位置を詰め直さなくて済む
+        for (int i = order.length - 1; 0 <= i; i--) {
+            int sourceIndex = order[i];
+            if (from <= sourceIndex && sourceIndex < to) {
+                nextRemove(i, removed.get(sourceIndex - from));
+            }
+        }
+
+        int[] newOrder = new int[order.length - removed.size()];
+        int n = 0;
+        for (int sourceIndex : order) {
+            if (sourceIndex < from) {
+                newOrder[n++] = sourceIndex;
+            } else if (to <= sourceIndex) {
+                newOrder[n++] = sourceIndex - removed.size();
+            }
+        }
+        order = newOrder;
+        updatePositions();
+    }
+
+    private void added(int from, int to) {
+        int count = to - from;
+
+        int[] newOrder = Arrays.copyOf(order, order.length + count);
+        for (int i = 0; i < order.length; i++) {
+            if (from <= newOrder[i]) {
+                newOrder[i] += count;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            newOrder[order.length + i] = from + i;
+        }
+        pendingCount += count;
+
+        order = newOrder;
+        updatePositions();
+    }
+
+    /**
+     * 末尾に仮に置いた追加された要素を、比較関数で探した位置に挿入する。
+     */
+    private void insertPending() {
+        var source = getSource();
+        int settled = order.length - pendingCount;
+
+        // 追加された要素を比較関数で並べる。等しい要素は元のリストの順にする
+        var pending = new Integer[pendingCount];
+        for (int i = 0; i < pendingCount; i++) {
+            pending[i] = order[settled + i];
+        }
+        Arrays.sort(pending, (a, b) -> {
+            int result = comparator.compare(source.get(a), source.get(b));
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+
+        int[] newOrder = new int[order.length];
+        int n = 0;
+        int copied = 0;
+        for (int sourceIndex : pending) {
+            T item = source.get(sourceIndex);
+
+            // 並べた順に挿入するため、挿入する位置は前の要素を挿入した位置より前にはならない
+            int low = copied;
+            int high = settled;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(item, source.get(order[mid])) < 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+
+            System.arraycopy(order, copied, newOrder, n, low - copied);
+            n += low - copied;
+            copied = low;
+
+            newOrder[n] = sourceIndex;
+            nextAdd(n, n + 1);
+            n++;
+        }
+        System.arraycopy(order, copied, newOrder, n, settled - copied);
+
+        order = newOrder;
+        pendingCount = 0;
+        updatePositions();
+    }
+}
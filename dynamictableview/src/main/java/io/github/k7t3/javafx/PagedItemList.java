@@ -0,0 +1,221 @@
+package io.github.k7t3.javafx;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@link DataProvider}からページ単位で要素を読み込むリスト。
+ * <p>
+ *     大きさは読み込んだ要素の総数になり、まだ読み込んでいない要素はnullを返す。
+ *     要素の総数に比例する処理を避けるため、{@link javafx.collections.transformation.FilteredList}と
+ *     {@link javafx.collections.transformation.SortedList}を経由せずにそのまま表示する。
+ *     読み込みは表示している範囲から{@link #request(int, int)}で要求する。
+ * </p>
+ * <p>
+ *     読み込んだページは上限を超えると最も長い間使われていないものから破棄し、
+ *     破棄した範囲はnullに置き換えたことを通知する。そのため保持する要素の数はページの上限で決まる。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class PagedItemList<T> extends ObservableListBase<T> {
+
+    private static final System.Logger LOGGER = System.getLogger(PagedItemList.class.getName());
+
+    private final DataProvider<T> provider;
+
+    private final int pageSize;
+
+    private int maxPages;
+
+    /**
+     * 読み込んだページ。最も長い間使われていない順に並べる。
+     */
+    private final LinkedHashMap<Integer, List<T>> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 読み込み中のページ
+     */
+    private final Set<Integer> loading = new HashSet<>();
+
+    private int size = 0;
+
+    private boolean disposed = false;
+
+    PagedItemList(DataProvider<T> provider, int pageSize, int maxPages) {
+        this.provider = Objects.requireNonNull(provider);
+        this.pageSize = Math.max(1, pageSize);
+        this.maxPages = Math.max(1, maxPages);
+
+        provider.fetchCount().whenComplete((count, error) -> Platform.runLater(() -> countLoaded(count, error)));
+    }
+
+    private void countLoaded(Integer count, Throwable error) {
+        if (disposed) {
+            return;
+        }
+        if (error != null || count == null) {
+            LOGGER.log(System.Logger.Level.WARNING, "failed to load item count", error);
+            return;
+        }
+        if (count <= 0) {
+            return;
+        }
+
+        size = count;
+        beginChange();
+        nextAdd(0, size);
+        endChange();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+
+        var page = pages.get(index / pageSize);
+        if (page == null) {
+            return null;
+        }
+        return page.get(index % pageSize);
+    }
+
+    /**
+     * 指定の位置の要素を読み込んでいるところかを返す。
+     * @param index 要素インデックス
+     * @return まだ読み込んでいないときはtrue
+     */
+    boolean isPending(int index) {
+        return 0 <= index && index < size && !pages.containsKey(index / pageSize);
+    }
+
+    /**
+     * 指定の範囲の要素を含むページを読み込む。読み込んでいるページは最近使われたものとして扱う。
+     * @param from 要素インデックスの先頭
+     * @param to 要素インデックスの末尾(この値を含まない)
+     */
+    void request(int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(size, to);
+        if (disposed || to <= from) {
+            return;
+        }
+
+        for (int page = from / pageSize; page <= (to - 1) / pageSize; page++) {
+            if (pages.get(page) == null && loading.add(page)) {
+                load(page);
+            }
+        }
+    }
+
+    private void load(int page) {
+        int offset = page * pageSize;
+        int limit = Math.min(pageSize, size - offset);
+
+        try {
+            provider.fetchPage(offset, limit)
+                    .whenComplete((items, error) -> Platform.runLater(() -> pageLoaded(page, items, error)));
+        } catch (RuntimeException e) {
+            loading.remove(page);
+            LOGGER.log(System.Logger.Level.WARNING, "failed to load page " + page, e);
+        }
+    }
+
+    private void pageLoaded(int page, List<T> items, Throwable error) {
+        // 破棄されたあとや、読み込み直しを要求されたあとに届いた結果は捨てる
+        if (disposed || !loading.remove(page)) {
+            return;
+        }
+        if (error != null || items == null) {
+            LOGGER.log(System.Logger.Level.WARNING, "failed to load page " + page, error);
+            return;
+        }
+
+        int offset = page * pageSize;
+        if (size <= offset) {
+            return;
+        }
+
+        int limit = Math.min(pageSize, size - offset);
+        var loaded = new ArrayList<T>(limit);
+        for (int i = 0; i < limit; i++) {
+            loaded.add(i < items.size() ? items.get(i) : null);
+        }
+
+        evict(maxPages - 1);
+        pages.put(page, loaded);
+
+        beginChange();
+        nextReplace(offset, offset + limit, Collections.nCopies(limit, null));
+        endChange();
+    }
+
+    /**
+     * 最も長い間使われていないページから、ページの数が指定の数になるまで破棄する。
+     */
+    private void evict(int retainCount) {
+        while (retainCount < pages.size()) {
+            // 通知を受けたリストが要素を参照して順序が変わるため、毎回先頭から取り出す
+            int page = pages.keySet().iterator().next();
+            var removed = pages.remove(page);
+
+            // 後続のリストが破棄した要素を参照し続けないように、nullに置き換えたことを通知する
+            int offset = page * pageSize;
+            beginChange();
+            nextReplace(offset, offset + removed.size(), removed);
+            endChange();
+        }
+    }
+
+    /**
+     * 読み込んでいない要素(null)が読み込まれたか、読み込んだ要素が破棄されてnullに戻ったことを表す変更かを返す。
+     * <p>
+     *     このリストは読み込みと破棄を同じ大きさの置換として通知する。
+     *     要素の位置は変わらないため、受け取る側は削除と追加として扱わずに位置に結び付いた状態を保つ。
+     * </p>
+     * @param c 現在の変更を指している変更
+     * @return 読み込みか破棄による変更のときはtrue
+     */
+    static boolean isPlaceholderChange(ListChangeListener.Change<?> c) {
+        if (!c.wasReplaced() || c.getRemovedSize() != c.getAddedSize()) {
+            return false;
+        }
+        return allNull(c.getRemoved()) || allNull(c.getAddedSubList());
+    }
+
+    private static boolean allNull(List<?> list) {
+        for (var item : list) {
+            if (item != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void setMaxPages(int maxPages) {
+        this.maxPages = Math.max(1, maxPages);
+        evict(this.maxPages);
+    }
+
+    int getPageCount() {
+        return pages.size();
+    }
+
+    void dispose() {
+        disposed = true;
+        pages.clear();
+        loading.clear();
+    }
+}
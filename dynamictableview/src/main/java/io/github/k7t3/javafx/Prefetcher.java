@@ -0,0 +1,24 @@
+package io.github.k7t3.javafx;
+
+import java.util.concurrent.Future;
+
+/**
+ * これから表示される要素の準備をあらかじめ開始する処理。
+ * <p>
+ *     {@link DynamicTableView#setPrefetcher(Prefetcher)}で割り当てると、スクロールしている方向の先にある
+ *     {@link DynamicTableView#getPrefetchRows()}行(速くスクロールしているときはそれより多くの行)の要素について
+ *     FXアプリケーションスレッドから呼び出される。準備はバックグラウンドで行い、すぐに戻ること。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+@FunctionalInterface
+public interface Prefetcher<T> {
+
+    /**
+     * 要素の準備を開始する。
+     * @param item 要素
+     * @return 準備の完了を表すFuture。要素が表示されないままスクロールで遠ざかったときに
+     *         {@link Future#cancel(boolean)}でキャンセルされる。キャンセルしないときはnull
+     */
+    Future<?> prefetch(T item);
+}
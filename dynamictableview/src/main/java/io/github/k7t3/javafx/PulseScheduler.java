@@ -0,0 +1,102 @@
+package io.github.k7t3.javafx;
+
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 処理を次のパルスのレイアウト前にまとめて実行するスケジューラ。
+ * <p>
+ *     同じパルスの間に何度スケジュールされても処理は一度だけ実行される。
+ *     ノードがシーンに含まれていないときは、スケジュールされた処理をその場で実行する。
+ * </p>
+ */
+class PulseScheduler {
+
+    private final Node node;
+
+    private final Set<Runnable> tasks = new LinkedHashSet<>();
+
+    private final Runnable pulseListener = this::flush;
+
+    private final ChangeListener<Scene> sceneListener = (ob, o, n) -> attach(n);
+
+    private Scene scene;
+
+    PulseScheduler(Node node) {
+        this.node = node;
+        node.sceneProperty().addListener(sceneListener);
+        attach(node.getScene());
+    }
+
+    /**
+     * 次のパルスで実行する処理を登録する。
+     * @param task 実行する処理
+     * @throws IllegalStateException ノードがシーンに含まれているときに、FXアプリケーションスレッド以外から呼び出されたとき
+     */
+    void schedule(Runnable task) {
+        if (scene == null) {
+            task.run();
+            return;
+        }
+
+        // 登録された処理はパルスで実行されるため、シーンに含まれているノードの処理はFXアプリケーションスレッドで登録する
+        if (!Platform.isFxApplicationThread()) {
+            throw new IllegalStateException("Not on FX application thread; currentThread = " + Thread.currentThread().getName());
+        }
+
+        if (tasks.add(task) && tasks.size() == 1) {
+            Platform.requestNextPulse();
+        }
+    }
+
+    /**
+     * 登録されている処理を取り消す。
+     * @param task 取り消す処理
+     */
+    void cancel(Runnable task) {
+        tasks.remove(task);
+    }
+
+    boolean isScheduled(Runnable task) {
+        return tasks.contains(task);
+    }
+
+    /**
+     * 登録されている処理をただちに実行する。
+     */
+    void flush() {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        // 実行中に再登録されることがあるためコピーしてから実行する
+        var pending = new ArrayList<>(tasks);
+        tasks.clear();
+        pending.forEach(Runnable::run);
+    }
+
+    private void attach(Scene newScene) {
+        if (scene != null) {
+            scene.removePreLayoutPulseListener(pulseListener);
+        }
+
+        scene = newScene;
+
+        if (scene != null) {
+            scene.addPreLayoutPulseListener(pulseListener);
+        } else {
+            flush();
+        }
+    }
+
+    void dispose() {
+        node.sceneProperty().removeListener(sceneListener);
+        attach(null);
+    }
+}
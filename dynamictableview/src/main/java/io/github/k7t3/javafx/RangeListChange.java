@@ -0,0 +1,325 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * 範囲単位で記録した変更を通知する{@link ListChangeListener.Change}。
+ * <p>
+ *     削除された要素は必要になったときに生成するリストとして保持するため、
+ *     変更された要素の数に関わらず記録にかかる時間は範囲の数に比例する。
+ *     削除された要素のリストは通知の間だけ有効。
+ * </p>
+ * @param <E> 要素のタイプ
+ */
+class RangeListChange<E> extends ListChangeListener.Change<E> {
+
+    private static final int[] EMPTY_PERMUTATION = new int[0];
+
+    private final List<SubChange<E>> changes;
+
+    private int cursor = -1;
+
+    private RangeListChange(ObservableList<E> list, List<SubChange<E>> changes) {
+        super(list);
+        this.changes = changes;
+    }
+
+    @Override
+    public boolean next() {
+        return ++cursor < changes.size();
+    }
+
+    @Override
+    public void reset() {
+        cursor = -1;
+    }
+
+    private SubChange<E> current() {
+        if (cursor < 0 || changes.size() <= cursor) {
+            throw new IllegalStateException("Invalid Change state: next() must be called before inspecting the Change.");
+        }
+        return changes.get(cursor);
+    }
+
+    @Override
+    public int getFrom() {
+        return current().from;
+    }
+
+    @Override
+    public int getTo() {
+        return current().to;
+    }
+
+    @Override
+    public List<E> getRemoved() {
+        return current().removed;
+    }
+
+    @Override
+    protected int[] getPermutation() {
+        return EMPTY_PERMUTATION;
+    }
+
+    private static final class SubChange<E> {
+
+        private final int from;
+
+        private final int to;
+
+        private final List<E> removed;
+
+        private SubChange(int from, int to, List<E> removed) {
+            this.from = from;
+            this.to = to;
+            this.removed = removed;
+        }
+    }
+
+    /**
+     * 変更を記録するビルダー。変更は位置の昇順に記録すること。
+     * @param <E> 要素のタイプ
+     */
+    static final class Builder<E> {
+
+        private final List<SubChange<E>> changes = new ArrayList<>();
+
+        /**
+         * 追加を記録する。
+         * @param from 追加された要素の先頭の位置
+         * @param to 追加された要素の末尾の位置(この値を含まない)
+         */
+        void added(int from, int to) {
+            changes.add(new SubChange<>(from, to, List.of()));
+        }
+
+        /**
+         * 削除を記録する。
+         * @param at 削除された位置
+         * @param removed 削除された要素
+         */
+        void removed(int at, List<E> removed) {
+            changes.add(new SubChange<>(at, at, removed));
+        }
+
+        /**
+         * 置換を記録する。
+         * @param from 置換された要素の先頭の位置
+         * @param to 置換された要素の末尾の位置(この値を含まない)
+         * @param removed 置換される前の要素
+         */
+        void replaced(int from, int to, List<E> removed) {
+            changes.add(new SubChange<>(from, to, removed));
+        }
+
+        boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        ListChangeListener.Change<E> build(ObservableList<E> list) {
+            return new RangeListChange<>(list, new ArrayList<>(changes));
+        }
+
+        void clear() {
+            changes.clear();
+        }
+    }
+
+    /**
+     * 記録された変更を順に当てはめ、まとめ始める前の状態からの一度の変更としてまとめる。
+     * <p>
+     *     変更後のリストを、まとめ始める前の要素の範囲と、あとから追加された要素の範囲の並びとして保持する。
+     *     そのため、まとめるのにかかる時間は要素の数ではなく範囲の数に比例する。
+     * </p>
+     * @param <E> 要素のタイプ
+     */
+    static final class Accumulator<E> {
+
+        /**
+         * 変更後のリストを先頭から並べた範囲
+         */
+        private final List<Segment> segments = new ArrayList<>();
+
+        /**
+         * 取り除かれた、まとめ始める前の要素。まとめ始める前の位置ごとに保持する
+         */
+        private final TreeMap<Integer, List<E>> removedElements = new TreeMap<>();
+
+        private IntFunction<E> oldElements;
+
+        private int oldSize;
+
+        private boolean active = false;
+
+        /**
+         * 変更をまとめ始める。
+         * @param size まとめ始める前の大きさ
+         * @param oldElements まとめ始める前の位置から要素を返す関数。
+         *                    nullのときは、記録された削除された要素を取り除かれたときに複製して保持する
+         */
+        void begin(int size, IntFunction<E> oldElements) {
+            segments.clear();
+            removedElements.clear();
+            if (0 < size) {
+                segments.add(new Segment(0, size));
+            }
+            this.oldSize = size;
+            this.oldElements = oldElements;
+            active = true;
+        }
+
+        boolean isActive() {
+            return active;
+        }
+
+        /**
+         * ビルダーに記録された変更を当てはめ、ビルダーを空にする。
+         * @param builder 変更を記録したビルダー
+         */
+        void apply(Builder<E> builder) {
+            for (var change : builder.changes) {
+                if (!change.removed.isEmpty()) {
+                    removed(change.from, change.removed);
+                }
+                if (change.from < change.to) {
+                    added(change.from, change.to);
+                }
+            }
+            builder.clear();
+        }
+
+        /**
+         * まとめた変更をビルダーに記録し、まとめるのを終える。
+         * @param builder 変更を記録するビルダー
+         */
+        void finish(Builder<E> builder) {
+            int position = 0;
+            int added = 0;
+            int oldCursor = 0;
+            for (var segment : segments) {
+                if (segment.oldStart < 0) {
+                    added += segment.length;
+                    continue;
+                }
+                record(builder, position, added, oldCursor, segment.oldStart);
+                position += added + segment.length;
+                added = 0;
+                oldCursor = segment.oldStart + segment.length;
+            }
+            record(builder, position, added, oldCursor, oldSize);
+
+            segments.clear();
+            removedElements.clear();
+            oldElements = null;
+            active = false;
+        }
+
+        /**
+         * 変更後の位置からあとから追加された要素が続き、その間にまとめ始める前の要素が取り除かれていたことを記録する。
+         */
+        private void record(Builder<E> builder, int position, int added, int oldFrom, int oldTo) {
+            if (added == 0 && oldFrom == oldTo) {
+                return;
+            }
+
+            List<E> removed;
+            if (oldFrom == oldTo) {
+                removed = List.of();
+            } else if (oldElements != null) {
+                var elements = oldElements;
+                removed = new AbstractList<>() {
+                    @Override
+                    public E get(int index) {
+                        Objects.checkIndex(index, size());
+                        return elements.apply(oldFrom + index);
+                    }
+
+                    @Override
+                    public int size() {
+                        return oldTo - oldFrom;
+                    }
+                };
+            } else {
+                removed = new ArrayList<>(oldTo - oldFrom);
+                for (var elements : removedElements.subMap(oldFrom, oldTo).values()) {
+                    removed.addAll(elements);
+                }
+            }
+            builder.replaced(position, position + added, removed);
+        }
+
+        /**
+         * 指定の位置で範囲を分け、その位置から始まる範囲のインデックスを返す。
+         */
+        private int split(int position) {
+            int start = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                if (position == start) {
+                    return i;
+                }
+                var segment = segments.get(i);
+                if (position < start + segment.length) {
+                    int head = position - start;
+                    int oldStart = segment.oldStart < 0 ? -1 : segment.oldStart + head;
+                    segments.add(i + 1, new Segment(oldStart, segment.length - head));
+                    segment.length = head;
+                    return i + 1;
+                }
+                start += segment.length;
+            }
+            return segments.size();
+        }
+
+        private void added(int from, int to) {
+            int i = split(from);
+
+            // 追加された範囲が隣り合うときはまとめる
+            if (0 < i && segments.get(i - 1).oldStart < 0) {
+                segments.get(i - 1).length += to - from;
+            } else if (i < segments.size() && segments.get(i).oldStart < 0) {
+                segments.get(i).length += to - from;
+            } else {
+                segments.add(i, new Segment(-1, to - from));
+            }
+        }
+
+        private void removed(int at, List<? extends E> removed) {
+            int first = split(at);
+            int last = split(at + removed.size());
+
+            int offset = 0;
+            for (int i = first; i < last; i++) {
+                var segment = segments.get(i);
+                // 削除された要素のリストは通知の間だけ有効なため複製する
+                if (0 <= segment.oldStart && oldElements == null) {
+                    removedElements.put(segment.oldStart, new ArrayList<>(removed.subList(offset, offset + segment.length)));
+                }
+                offset += segment.length;
+            }
+            segments.subList(first, last).clear();
+        }
+
+        /**
+         * 変更後のリストの範囲。oldStartが負のときはあとから追加された要素を表す。
+         */
+        private static final class Segment {
+
+            private final int oldStart;
+
+            private int length;
+
+            private Segment(int oldStart, int length) {
+                this.oldStart = oldStart;
+                this.length = length;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.k7t3.javafx;
+
+/**
+ * {@link DynamicTableView}が要素を表示する方法を表す。
+ * @see DynamicTableView#renderModeProperty()
+ */
+public enum RenderMode {
+
+    /**
+     * {@link javafx.scene.control.TableView}と列を使って表示する。
+     */
+    TABLE_VIEW,
+
+    /**
+     * {@link javafx.scene.control.skin.VirtualFlow}の行にセルを直接並べて表示する。
+     * 行や列ヘッダ、列ごとのスタイルを持たないため、ノード数とレイアウトの負荷が少ない。
+     */
+    VIRTUAL_FLOW,
+
+    /**
+     * 表示されている要素を一つの{@link javafx.scene.canvas.Canvas}に{@link TilePainter}で描画する。
+     * セルを生成しないため、大量の小さな要素を表示するときに向いている。
+     * セルの高さが0以下のときは、セルの幅と同じ高さで描画する。
+     * @see DynamicTableView#tilePainterProperty()
+     */
+    CANVAS
+
+}
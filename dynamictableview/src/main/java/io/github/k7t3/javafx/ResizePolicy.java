@@ -0,0 +1,25 @@
+package io.github.k7t3.javafx;
+
+/**
+ * {@link DynamicTableView}の幅やセルの幅が変わったときに、列数を再計算する契機を表す。
+ * @see DynamicTableView#resizePolicyProperty()
+ */
+public enum ResizePolicy {
+
+    /**
+     * 幅が変わるたびにただちに列数を再計算する。
+     */
+    IMMEDIATE,
+
+    /**
+     * 幅の変更をまとめて、1パルス(アニメーションフレーム)につき一度だけ列数を再計算する。
+     */
+    PER_PULSE,
+
+    /**
+     * 幅の変更が{@link DynamicTableView#getResizeIdleDelay()}の間止まるまで列数を変えない。
+     * 幅を変更している間は現在の列数のまま表示し、はみ出した部分は切り取られる。
+     */
+    DEFERRED
+
+}
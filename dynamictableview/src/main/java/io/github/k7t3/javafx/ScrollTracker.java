@@ -0,0 +1,269 @@
+package io.github.k7t3.javafx;
+
+import javafx.animation.PauseTransition;
+import javafx.beans.InvalidationListener;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.util.Duration;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * {@link VirtualFlow}のスクロールの方向と速さを追跡し、スクロールしている方向の先にある要素を
+ * {@link Prefetcher}で準備させる。
+ * <p>
+ *     速くスクロールしているほど先の行まで準備させる。準備させた要素が表示されないまま
+ *     準備する範囲から外れたときは、準備をキャンセルする。
+ * </p>
+ * <p>
+ *     スクロールの速さが{@link DynamicTableView#getFastScrollVelocity()}を超えたときは
+ *     {@link DynamicTableView#fastScrollingProperty()}をtrueにし、スクロールが止まってから
+ *     {@link #SETTLE_DELAY}が経過したときにfalseに戻す。
+ * </p>
+ * <p>
+ *     {@link DataProvider}から要素を読み込んでいるときは、表示している範囲と準備する範囲のページを読み込ませる。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class ScrollTracker<T> {
+
+    /**
+     * スクロールの速さから、この秒数の間に表示される行まで準備させる
+     */
+    private static final double LOOKAHEAD_SECONDS = 0.5;
+
+    /**
+     * 速さに応じて追加で準備させる行数の、{@link DynamicTableView#getPrefetchRows()}に対する倍率の上限
+     */
+    private static final int MAX_LOOKAHEAD_FACTOR = 8;
+
+    /**
+     * 速さの平滑化に使う、新しい値の重み
+     */
+    private static final double SMOOTHING = 0.5;
+
+    /**
+     * スクロールが止まったとみなすまでの時間
+     */
+    static final Duration SETTLE_DELAY = Duration.millis(150);
+
+    private static final Future<?> NOT_CANCELLABLE = CompletableFuture.completedFuture(null);
+
+    private final DynamicTableView<T> control;
+
+    private final PulseScheduler pulseScheduler;
+
+    private final Runnable update = this::update;
+
+    private final InvalidationListener positionListener;
+
+    private VirtualFlow<?> flow;
+
+    /**
+     * 準備させている要素
+     */
+    private final Map<T, Future<?>> prefetching = new IdentityHashMap<>();
+
+    private double lastRow = Double.NaN;
+
+    private long lastTime;
+
+    /**
+     * 1秒あたりにスクロールした行数。下にスクロールしているときは正になる。
+     */
+    private double velocity = 0;
+
+    private int direction = 1;
+
+    private final PauseTransition settleTimer = new PauseTransition(SETTLE_DELAY);
+
+    ScrollTracker(DynamicTableView<T> control, PulseScheduler pulseScheduler) {
+        this.control = control;
+        this.pulseScheduler = pulseScheduler;
+        this.positionListener = ob -> {
+            pulseScheduler.schedule(update);
+            if (0 < control.getFastScrollVelocity()) {
+                settleTimer.playFromStart();
+            }
+        };
+        settleTimer.setOnFinished(e -> settle());
+    }
+
+    /**
+     * スクロールが止まったときに呼び出される。
+     */
+    private void settle() {
+        velocity = 0;
+        lastRow = Double.NaN;
+        control.setFastScrolling(false);
+    }
+
+    /**
+     * 追跡するフローを割り当てる。
+     * @param newFlow 追跡するフロー。追跡をやめるときはnull
+     */
+    void attach(VirtualFlow<?> newFlow) {
+        if (flow == newFlow) {
+            return;
+        }
+
+        if (flow != null) {
+            flow.positionProperty().removeListener(positionListener);
+        }
+
+        flow = newFlow;
+        lastRow = Double.NaN;
+        velocity = 0;
+
+        if (newFlow != null) {
+            newFlow.positionProperty().addListener(positionListener);
+        }
+    }
+
+    /**
+     * 準備させている要素をすべてキャンセルし、準備させる範囲を求め直す。
+     */
+    void reset() {
+        cancelAll();
+        pulseScheduler.schedule(update);
+    }
+
+    private void measure(int rowCount) {
+        double row = flow.getPosition() * rowCount;
+        long now = System.nanoTime();
+
+        if (!Double.isNaN(lastRow) && lastTime < now) {
+            double instant = (row - lastRow) / ((now - lastTime) / 1_000_000_000.0);
+            velocity = velocity * (1 - SMOOTHING) + instant * SMOOTHING;
+        }
+
+        if (0 < velocity) {
+            direction = 1;
+        } else if (velocity < 0) {
+            direction = -1;
+        }
+
+        lastRow = row;
+        lastTime = now;
+    }
+
+    private void update() {
+        var dataModel = control.getDataModel();
+        int columnCount = dataModel.getColumnCount();
+        int rowCount = dataModel.getRowCount();
+
+        if (flow == null || columnCount < 1 || rowCount == 0) {
+            cancelAll();
+            return;
+        }
+
+        measure(rowCount);
+
+        double threshold = control.getFastScrollVelocity();
+        if (0 < threshold && threshold <= Math.abs(velocity)) {
+            control.setFastScrolling(true);
+        }
+
+        var prefetcher = control.getPrefetcher();
+        boolean paged = control.getDataProvider() != null;
+        if (prefetcher == null && !paged) {
+            cancelAll();
+            return;
+        }
+
+        IndexedCell<?> first = flow.getFirstVisibleCell();
+        IndexedCell<?> last = flow.getLastVisibleCell();
+        if (first == null || last == null) {
+            return;
+        }
+
+        int firstVisible = first.getIndex();
+        int lastVisible = last.getIndex();
+
+        int rows = Math.max(0, control.getPrefetchRows());
+        int extra = (int) Math.min((long) rows * MAX_LOOKAHEAD_FACTOR, Math.round(Math.abs(velocity) * LOOKAHEAD_SECONDS));
+        int ahead = rows + extra;
+
+        int from;
+        int to;
+        if (0 < direction) {
+            from = lastVisible + 1;
+            to = Math.min(rowCount, lastVisible + 1 + ahead);
+        } else {
+            from = Math.max(0, firstVisible - ahead);
+            to = firstVisible;
+        }
+
+        int visibleFrom = Math.max(0, firstVisible) * columnCount;
+        int visibleTo = Math.min(dataModel.getItemCount(), (lastVisible + 1) * columnCount);
+        int aheadFrom = from * columnCount;
+        int aheadTo = Math.min(dataModel.getItemCount(), to * columnCount);
+
+        // DataProviderから読み込んでいるときは、表示している範囲と準備する範囲のページを読み込む
+        if (paged) {
+            control.requestItems(visibleFrom, visibleTo);
+            control.requestItems(aheadFrom, aheadTo);
+        }
+
+        if (prefetcher == null) {
+            cancelAll();
+            return;
+        }
+
+        // 準備する範囲から外れ、表示もされていない要素の準備をやめる
+        var keep = new IdentityHashMap<T, Boolean>();
+        for (int i = visibleFrom; i < visibleTo; i++) {
+            keep.put(dataModel.getItem(i), Boolean.TRUE);
+        }
+        for (int i = aheadFrom; i < aheadTo; i++) {
+            keep.put(dataModel.getItem(i), Boolean.TRUE);
+        }
+
+        var iterator = prefetching.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (!keep.containsKey(entry.getKey())) {
+                entry.getValue().cancel(true);
+                iterator.remove();
+            }
+        }
+
+        // スクロールしている方向に近い要素から準備させる
+        if (0 < direction) {
+            for (int i = aheadFrom; i < aheadTo; i++) {
+                prefetch(prefetcher, dataModel.getItem(i));
+            }
+        } else {
+            for (int i = aheadTo - 1; aheadFrom <= i; i--) {
+                prefetch(prefetcher, dataModel.getItem(i));
+            }
+        }
+    }
+
+    private void prefetch(Prefetcher<T> prefetcher, T item) {
+        // まだ読み込まれていない要素は準備できない
+        if (item == null || prefetching.containsKey(item)) {
+            return;
+        }
+        var future = prefetcher.prefetch(item);
+        prefetching.put(item, future == null ? NOT_CANCELLABLE : future);
+    }
+
+    private void cancelAll() {
+        for (var future : prefetching.values()) {
+            future.cancel(true);
+        }
+        prefetching.clear();
+    }
+
+    void dispose() {
+        pulseScheduler.cancel(update);
+        settleTimer.stop();
+        attach(null);
+        cancelAll();
+        control.setFastScrolling(false);
+    }
+}
@@ -4,16 +4,17 @@ import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleObjectProperty;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.SortedList;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Function;
 
 class TableDataModel<T> {
 
-    private final ObservableList<TableDataRowModel<T>> rows = FXCollections.observableArrayList();
+    private final TableDataRowList<T> rows = new TableDataRowList<>(this);
 
     public TableDataModel() {
     }
@@ -44,100 +45,264 @@ class TableDataModel<T> {
         return rows;
     }
 
-    private ObjectProperty<SortedList<T>> sortedItems;
+    private ObjectProperty<ObservableList<T>> itemsProperty;
 
-    public ObjectProperty<SortedList<T>> sortedItemsProperty() {
-        if (sortedItems == null) {
-            sortedItems = new SimpleObjectProperty<>();
+    /**
+     * スクロールのたびに参照されるため、プロパティを経由せずに保持する要素リスト
+     */
+    private ObservableList<T> items;
+
+    /**
+     * 表示する順に並んだ要素リストを表すプロパティ。
+     * 通常は{@link DynamicTableView#getSortedItems()}で、{@link DataProvider}から読み込んでいるときは読み込んでいるリストそのもの。
+     * @return 表示する順に並んだ要素リストを表すプロパティ
+     */
+    public ObjectProperty<ObservableList<T>> itemsProperty() {
+        if (itemsProperty == null) {
+            itemsProperty = new SimpleObjectProperty<>();
+            itemsProperty.addListener((ob, o, n) -> {
+                items = n;
+                if (itemIndex != null) {
+                    itemIndex.setItems(n);
+                }
+            });
         }
-        return sortedItems;
+        return itemsProperty;
     }
 
-    public SortedList<T> getItems() {
-        return sortedItemsProperty().get();
+    public ObservableList<T> getItems() {
+        return itemsProperty().get();
     }
 
+    private Function<? super T, ?> keyExtractor;
+
     /**
-     * 指定の要素インデックスを含む行を含んだすべての行を更新する
-     * @param itemIndex 更新を開始する要素インデックス
+     * 要素を識別するキーを返す関数を返す。
+     * @return キーを返す関数。要素そのものをキーとするときはnull
      */
-    void updateRowIndexAfter(int itemIndex) {
-        var startRow = calculateRowIndex(itemIndex);
+    Function<? super T, ?> getKeyExtractor() {
+        return keyExtractor;
+    }
 
-        for (int i = startRow; i < rows.size(); i++) {
-            var row = rows.get(i);
-            row.update();
+    void setKeyExtractor(Function<? super T, ?> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        if (itemIndex != null) {
+            itemIndex.setKeyExtractor(keyExtractor);
         }
     }
 
     /**
-     * 引数の要素インデックスを含んだ行すべてを更新する。
-     * @param itemIndices 更新する要素インデックス
+     * 最初に検索されたときに作る、要素から要素インデックスを求める索引
      */
-    void updateRowContainsItem(Collection<Integer> itemIndices) {
-        var updatedRows = new HashSet<Integer>(rows.size());
+    private ItemIndex<T> itemIndex;
 
-        for (var itemIndex : itemIndices) {
+    /**
+     * 要素の表示順の要素インデックスを返す。
+     * @param item 要素
+     * @return 要素インデックス。含まれていないときは-1
+     */
+    int indexOf(T item) {
+        return getItemIndex().indexOf(item);
+    }
 
-            var rowIndex = calculateRowIndex(itemIndex);
+    /**
+     * キーが一致する要素の表示順の要素インデックスを返す。
+     * @param key キー
+     * @return 要素インデックス。含まれていないときは-1
+     */
+    int indexOfKey(Object key) {
+        return getItemIndex().indexOfKey(key);
+    }
 
-            var row = rows.get(rowIndex);
+    /**
+     * 要素を識別するキーを返す。
+     * @param item 要素
+     * @return キー。キーを返す関数が割り当てられていないときは要素そのもの
+     */
+    Object keyOf(T item) {
+        if (item == null || keyExtractor == null) {
+            return item;
+        }
+        return keyExtractor.apply(item);
+    }
 
-            if (!updatedRows.contains(rowIndex)) {
-                row.update();
-                updatedRows.add(rowIndex);
-            }
+    private ItemIndex<T> getItemIndex() {
+        if (itemIndex == null) {
+            itemIndex = new ItemIndex<>(getItems(), keyExtractor);
         }
+        return itemIndex;
+    }
+
+    /**
+     * 要素の変更を反映したバージョン
+     */
+    private int version = 0;
+
+    /**
+     * これより後ろの行は更新されていない可能性がある
+     */
+    private int dirtyFromRow = Integer.MAX_VALUE;
+
+    /**
+     * セルから購読されている(画面に表示されている)行
+     */
+    private final Set<TableDataRowModel<T>> liveRows = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    int getVersion() {
+        return version;
+    }
+
+    void rowAttached(TableDataRowModel<T> row) {
+        liveRows.add(row);
+    }
+
+    void rowDetached(TableDataRowModel<T> row) {
+        liveRows.remove(row);
+    }
+
+    int getLiveRowCount() {
+        return liveRows.size();
+    }
+
+    /**
+     * 行が最後に更新されてから、その行に含まれる要素が変わった可能性があるかを返す。
+     * @param row 行
+     * @return 更新が必要なときはtrue
+     */
+    boolean isDirty(TableDataRowModel<T> row) {
+        return dirtyFromRow <= row.getRowIndex() && row.getVersion() != version;
+    }
+
+    /**
+     * 指定の要素インデックス以降の要素がずれたことを反映する。
+     * @param itemIndex 変更された先頭の要素インデックス
+     * @see #reflow(int, int)
+     */
+    void reflow(int itemIndex) {
+        reflow(itemIndex, Integer.MAX_VALUE);
     }
 
-    private int calculateRowIndex(int itemIndex) {
-        var columnCount = this.columnCount.get();
-        if (columnCount < 1) {
-            throw new IllegalStateException("no column");
+    /**
+     * 指定の範囲の要素が変更されたことを反映する。
+     * 表示されている行だけを更新し、そのほかの行は次に表示されるときに更新されるよう無効化する。
+     * @param fromItemIndex 変更された先頭の要素インデックス
+     * @param toItemIndex 変更された末尾の要素インデックス(この値を含まない)
+     */
+    void reflow(int fromItemIndex, int toItemIndex) {
+        var columnCount = getColumnCount();
+        if (columnCount < 1 || toItemIndex <= fromItemIndex) {
+            return;
         }
 
-        return itemIndex / columnCount;
+        int startRow = fromItemIndex / columnCount;
+        int endRow = toItemIndex == Integer.MAX_VALUE ? Integer.MAX_VALUE : (toItemIndex - 1) / columnCount;
+
+        version++;
+        dirtyFromRow = Math.min(dirtyFromRow, startRow);
+
+        updateLiveRows(startRow, endRow);
     }
 
-    void normalizeRows() {
-        int columnCount = this.columnCount.get();
-        int rowCount = (int)Math.ceil(getItems().size() / (double)columnCount);
+    /**
+     * すべての行を無効化して、表示されている行だけを更新する。
+     */
+    void invalidateAll() {
+        version++;
+        dirtyFromRow = 0;
 
-        normalizeRowCount(rowCount);
+        updateLiveRows(0, Integer.MAX_VALUE);
     }
 
-    private void normalizeRowCount(int rowCount) {
-        int currentRowCount = rows.size();
+    /**
+     * 同じインスタンスのまま内容が変更された要素を表示しているセルだけを更新する。
+     * @param itemIndex 変更された要素インデックス
+     */
+    void refreshItem(int itemIndex) {
+        var columnCount = getColumnCount();
+        if (columnCount < 1 || itemIndex < 0) {
+            return;
+        }
+
+        int rowIndex = itemIndex / columnCount;
+        var row = findLiveRow(rowIndex);
+        if (row != null) {
+            row.refresh(itemIndex - rowIndex * columnCount);
+        }
+    }
+
+    /**
+     * 表示されているすべてのセルに要素の内容が変更された可能性があることを通知する。
+     */
+    void refreshLiveRows() {
+        for (var row : new ArrayList<>(liveRows)) {
+            row.refreshAll();
+        }
+    }
 
-        if (rowCount < currentRowCount) {
-            // 行数が超過している場合、超過分を削除
-            for (int i = 0; i < currentRowCount - rowCount; i++) {
-                var row = rows.get(currentRowCount - i - 1);
-                row.clear();
-                rows.remove(row);
+    private TableDataRowModel<T> findLiveRow(int rowIndex) {
+        // 表示されている行は通常キャッシュされている
+        var row = rows.getCachedRow(rowIndex);
+        if (row != null) {
+            return liveRows.contains(row) ? row : null;
+        }
+
+        for (var liveRow : liveRows) {
+            if (liveRow.getRowIndex() == rowIndex) {
+                return liveRow;
             }
+        }
+        return null;
+    }
+
+    private void updateLiveRows(int startRow, int endRow) {
+        if (liveRows.isEmpty()) {
+            return;
+        }
 
-        } else if (currentRowCount < rowCount) {
-            // 行数が不足している場合、不足分を追加
-            for (int i = currentRowCount; i < rowCount; i++) {
-                rows.add(new TableDataRowModel<>(i, this));
+        // 更新中にリスナが解除されることがあるためコピーしてから走査する
+        for (var row : new ArrayList<>(liveRows)) {
+            var rowIndex = row.getRowIndex();
+            if (startRow <= rowIndex && rowIndex <= endRow) {
+                row.update();
             }
+        }
+    }
+
+    void normalizeRows() {
+        int columnCount = getColumnCount();
+        int rowCount = columnCount < 1 ? 0 : (int)Math.ceil(getItemCount() / (double)columnCount);
+
+        // 行は表示されるときに生成されるため、行数だけを更新する
+        rows.setSize(rowCount);
+    }
 
+    /**
+     * すべての行を破棄する。
+     */
+    void dispose() {
+        for (var row : new ArrayList<>(liveRows)) {
+            row.clear();
         }
+        liveRows.clear();
+        rows.reset();
     }
 
-    T get(int rowIndex, int columnIndex) {
-        int count = getItems().size();
-        int columnCount = this.columnCount.get();
+    int getItemCount() {
+        return items == null ? 0 : items.size();
+    }
 
-        int skip = rowIndex * columnCount;
-        int index = skip + columnIndex;
+    T getItem(int index) {
+        return items.get(index);
+    }
+
+    T get(int rowIndex, int columnIndex) {
+        int index = rowIndex * getColumnCount() + columnIndex;
 
-        if (count - 1 < index) {
+        if (getItemCount() <= index) {
             return null;
         }
 
-        return getItems().get(index);
+        return items.get(index);
     }
 
-}
\ No newline at end of file
+}
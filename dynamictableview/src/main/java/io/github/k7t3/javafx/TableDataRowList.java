@@ -0,0 +1,207 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ObservableListBase;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link TableDataRowModel}を要素とする読み取り専用のリスト。
+ * <p>
+ *     行数は要素数と列数から算出され、行は{@link javafx.scene.control.skin.VirtualFlow}から
+ *     要求されたときにはじめて生成される。
+ *     生成した行は行インデックスを添字とする固定長のキャッシュに保持し、
+ *     セルから購読されていない行はキャッシュから押し出されると破棄される。
+ * </p>
+ * <p>
+ *     キャッシュから押し出された行も、どこかから参照されている間は弱参照で行インデックスと結び付けておく。
+ *     そのため、同じ行インデックスに対して同時に二つの行が生成されることはない。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+class TableDataRowList<T> extends ObservableListBase<TableDataRowModel<T>> {
+
+    private static final int DEFAULT_CACHE_CAPACITY = 256;
+
+    private final TableDataModel<T> model;
+
+    private int size = 0;
+
+    private TableDataRowModel<T>[] cache = newCache(DEFAULT_CACHE_CAPACITY);
+
+    /**
+     * 生成した行。キャッシュから押し出されても、参照されている間は同じ行を返すために保持する。
+     */
+    private final Map<Integer, RowReference<T>> created = new HashMap<>();
+
+    private final ReferenceQueue<TableDataRowModel<T>> collected = new ReferenceQueue<>();
+
+    TableDataRowList(TableDataModel<T> model) {
+        this.model = model;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public TableDataRowModel<T> get(int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return getRow(index);
+    }
+
+    private TableDataRowModel<T> getRow(int index) {
+        // 表示されている行がキャッシュ上で衝突しないように容量を確保する
+        if (cache.length < model.getLiveRowCount() * 2) {
+            grow();
+        }
+
+        int slot = index & (cache.length - 1);
+
+        var row = cache[slot];
+        if (row != null && row.getRowIndex() == index) {
+            return row;
+        }
+
+        row = findCreatedRow(index);
+        if (row == null) {
+            expungeCollectedRows();
+            row = new TableDataRowModel<>(index, model);
+            created.put(index, new RowReference<>(row, collected));
+        }
+        cache[slot] = row;
+        return row;
+    }
+
+    private TableDataRowModel<T> findCreatedRow(int index) {
+        var ref = created.get(index);
+        return ref == null ? null : ref.get();
+    }
+
+    /**
+     * 参照されなくなった行の対応を取り除く。
+     */
+    @SuppressWarnings("unchecked")
+    private void expungeCollectedRows() {
+        RowReference<T> ref;
+        while ((ref = (RowReference<T>) collected.poll()) != null) {
+            // 同じ行インデックスで作り直した行の対応は残す
+            created.remove(ref.rowIndex, ref);
+        }
+    }
+
+    /**
+     * キャッシュされている行を返す。
+     * @param index 行インデックス
+     * @return キャッシュされている行。キャッシュされていないときはnull
+     */
+    TableDataRowModel<T> getCachedRow(int index) {
+        var row = cache[index & (cache.length - 1)];
+        return row != null && row.getRowIndex() == index ? row : findCreatedRow(index);
+    }
+
+    private void grow() {
+        var old = cache;
+        cache = newCache(old.length * 2);
+
+        int mask = cache.length - 1;
+        for (var row : old) {
+            if (row != null) {
+                cache[row.getRowIndex() & mask] = row;
+            }
+        }
+    }
+
+    /**
+     * 行数を変更する。行数の変更は一度の変更通知にまとめられる。
+     * @param newSize 行数
+     */
+    void setSize(int newSize) {
+        int oldSize = size;
+        if (oldSize == newSize) {
+            return;
+        }
+
+        size = newSize;
+
+        beginChange();
+        if (newSize < oldSize) {
+            nextRemove(newSize, new RemovedRows(newSize, oldSize - newSize));
+        } else {
+            nextAdd(oldSize, newSize);
+        }
+        endChange();
+    }
+
+    /**
+     * すべての行を破棄して空にする。
+     */
+    void reset() {
+        cache = newCache(DEFAULT_CACHE_CAPACITY);
+
+        for (var ref : created.values()) {
+            var row = ref.get();
+            if (row != null) {
+                row.clear();
+            }
+        }
+        created.clear();
+        expungeCollectedRows();
+
+        setSize(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TableDataRowModel<T>[] newCache(int capacity) {
+        return (TableDataRowModel<T>[]) new TableDataRowModel<?>[capacity];
+    }
+
+    private static final class RowReference<T> extends WeakReference<TableDataRowModel<T>> {
+
+        private final Integer rowIndex;
+
+        RowReference(TableDataRowModel<T> row, ReferenceQueue<TableDataRowModel<T>> queue) {
+            super(row, queue);
+            this.rowIndex = row.getRowIndex();
+        }
+    }
+
+    /**
+     * 削除された行を返すリスト。
+     * <p>
+     *     生成済みの行があればその行を返し、なければキャッシュに入れない行を返す。
+     *     範囲外の行をキャッシュに入れて、使われている行をキャッシュから押し出さないようにするため。
+     * </p>
+     */
+    private class RemovedRows extends AbstractList<TableDataRowModel<T>> {
+
+        private final int from;
+
+        private final int size;
+
+        RemovedRows(int from, int size) {
+            this.from = from;
+            this.size = size;
+        }
+
+        @Override
+        public TableDataRowModel<T> get(int index) {
+            if (index < 0 || size <= index) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            }
+            var row = getCachedRow(from + index);
+            return row != null ? row : new TableDataRowModel<>(from + index, model);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
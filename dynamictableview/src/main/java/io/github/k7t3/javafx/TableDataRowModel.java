@@ -1,10 +1,11 @@
 package io.github.k7t3.javafx;
 
+import javafx.beans.InvalidationListener;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 class TableDataRowModel<T> {
 
@@ -12,35 +13,241 @@ class TableDataRowModel<T> {
 
     private final TableDataModel<T> model;
 
+    /**
+     * この行の値を最後に更新したときのデータモデルのバージョン
+     */
+    private int version;
+
+    /**
+     * この行のプロパティを購読しているリスナの数
+     */
+    private int listenerCount = 0;
+
+    /**
+     * 列インデックスを添字とするプロパティの配列。
+     * セルから要求されるまでプロパティは生成しない。
+     */
+    private Slot<T>[] slots;
+
     TableDataRowModel(int rowIndex, TableDataModel<T> model) {
         this.rowIndex = rowIndex;
         this.model = model;
+        this.version = model.getVersion();
+        this.slots = newSlots(model.getColumnCount());
     }
 
     public int getRowIndex() {
         return rowIndex;
     }
 
+    int getVersion() {
+        return version;
+    }
+
     private T get(int columnIndex) {
         return model.get(rowIndex, columnIndex);
     }
 
-    private final Map<Integer, SimpleObjectProperty<T>> properties = new HashMap<>(10);
-
     ObservableValue<T> getProperty(int columnIndex) {
-        SimpleObjectProperty<T> property = properties.computeIfAbsent(columnIndex, i -> new SimpleObjectProperty<>());
-        property.set(get(columnIndex));
-        return property;
+        // 表示されていない間に要素がずれていた場合は、まとめて更新する
+        if (model.isDirty(this)) {
+            update();
+        }
+
+        if (slots.length <= columnIndex) {
+            resize(Math.max(columnIndex + 1, model.getColumnCount()));
+        }
+
+        var slot = slots[columnIndex];
+        if (slot == null) {
+            slot = new Slot<>(this, get(columnIndex));
+            slots[columnIndex] = slot;
+        }
+        return slot;
     }
 
     void update() {
+        version = model.getVersion();
+
+        int columnCount = model.getColumnCount();
+        if (slots.length != columnCount) {
+            resize(columnCount);
+        }
+
         // プロパティの値を更新
-        properties.forEach((key, value) -> value.set(get(key)));
+        int itemCount = model.getItemCount();
+        int offset = rowIndex * columnCount;
+
+        for (int i = 0; i < slots.length; i++) {
+            var slot = slots[i];
+            if (slot != null) {
+                int index = offset + i;
+                slot.set(index < itemCount ? model.getItem(index) : null);
+            }
+        }
+    }
+
+    /**
+     * 指定の列の要素が同じインスタンスのまま変更されたことを、その列を表示しているセルに通知する。
+     * @param columnIndex 列インデックス
+     */
+    void refresh(int columnIndex) {
+        if (model.isDirty(this)) {
+            update();
+        }
+
+        if (columnIndex < slots.length) {
+            var slot = slots[columnIndex];
+            if (slot != null) {
+                slot.refresh(get(columnIndex));
+            }
+        }
+    }
+
+    /**
+     * すべての列の要素が同じインスタンスのまま変更された可能性があることを、セルに通知する。
+     */
+    void refreshAll() {
+        if (model.isDirty(this)) {
+            update();
+        }
+
+        for (int i = 0; i < slots.length; i++) {
+            var slot = slots[i];
+            if (slot != null) {
+                slot.refresh(get(i));
+            }
+        }
+    }
+
+    /**
+     * 列数に合わせてプロパティの配列を伸縮する。
+     * @param columnCount 列数
+     */
+    private void resize(int columnCount) {
+        // 切り捨てる列のプロパティは購読を打ち切る
+        for (int i = columnCount; i < slots.length; i++) {
+            var slot = slots[i];
+            if (slot != null) {
+                slot.setValue(null);
+                slot.detach();
+            }
+        }
+        slots = Arrays.copyOf(slots, columnCount);
     }
 
     public void clear() {
-        properties.values().forEach(p -> p.setValue(null));
-        properties.clear();
+        for (var slot : slots) {
+            if (slot != null) {
+                slot.setValue(null);
+                slot.detach();
+            }
+        }
+        slots = newSlots(0);
+
+        if (0 < listenerCount) {
+            listenerCount = 0;
+            model.rowDetached(this);
+        }
+    }
+
+    private void retain() {
+        if (listenerCount++ == 0) {
+            model.rowAttached(this);
+        }
+    }
+
+    private void release(int count) {
+        if (count < 1 || listenerCount == 0) {
+            return;
+        }
+
+        listenerCount = Math.max(0, listenerCount - count);
+        if (listenerCount == 0) {
+            model.rowDetached(this);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Slot<T>[] newSlots(int length) {
+        return (Slot<T>[]) new Slot<?>[Math.max(0, length)];
+    }
+
+    /**
+     * セルから購読されているかどうかを行に通知するプロパティ
+     */
+    private static final class Slot<T> extends SimpleObjectProperty<T> {
+
+        private TableDataRowModel<T> row;
+
+        private int listeners = 0;
+
+        Slot(TableDataRowModel<T> row, T initialValue) {
+            super(row, null, initialValue);
+            this.row = row;
+        }
+
+        private void retain() {
+            listeners++;
+            if (row != null) {
+                row.retain();
+            }
+        }
+
+        private void release() {
+            if (0 < listeners) {
+                listeners--;
+                if (row != null) {
+                    row.release(1);
+                }
+            }
+        }
+
+        /**
+         * 値が同じインスタンスの場合でもリスナに変更を通知する。
+         * @param value 新しい値
+         */
+        void refresh(T value) {
+            if (get() == value) {
+                fireValueChangedEvent();
+            } else {
+                set(value);
+            }
+        }
+
+        /**
+         * 行から切り離す。以降のリスナの増減は行に通知しない。
+         */
+        void detach() {
+            if (row != null) {
+                row.release(listeners);
+                row = null;
+            }
+        }
+
+        @Override
+        public void addListener(InvalidationListener listener) {
+            super.addListener(listener);
+            retain();
+        }
+
+        @Override
+        public void removeListener(InvalidationListener listener) {
+            super.removeListener(listener);
+            release();
+        }
+
+        @Override
+        public void addListener(ChangeListener<? super T> listener) {
+            super.addListener(listener);
+            retain();
+        }
+
+        @Override
+        public void removeListener(ChangeListener<? super T> listener) {
+            super.removeListener(listener);
+            release();
+        }
     }
 
-}
\ No newline at end of file
+}
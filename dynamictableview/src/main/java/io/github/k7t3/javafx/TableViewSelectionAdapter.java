@@ -0,0 +1,211 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumnBase;
+import javafx.scene.control.TablePosition;
+import javafx.scene.control.TableView;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * {@link DynamicTableViewSelectionModel}の選択状態を{@link TableView}のセル選択として見せるアダプタ。
+ * <p>
+ *     選択状態は{@link DynamicTableViewSelectionModel}だけが保持し、このクラスは行と列を
+ *     要素インデックスに変換して委譲する。{@link #getSelectedCells()}は選択されている要素インデックスから
+ *     {@link TablePosition}を求めるビューで、選択状態の変更は範囲単位のまま通知される。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+@SuppressWarnings("rawtypes")
+class TableViewSelectionAdapter<T> extends TableView.TableViewSelectionModel<TableDataRowModel<T>> {
+
+    private final DynamicTableViewSelectionModel<T> selectionModel;
+
+    private final TableDataModel<T> dataModel;
+
+    private final SelectedCells selectedCells = new SelectedCells();
+
+    TableViewSelectionAdapter(TableView<TableDataRowModel<T>> tableView, DynamicTableViewSelectionModel<T> selectionModel, TableDataModel<T> dataModel) {
+        super(tableView);
+        this.selectionModel = selectionModel;
+        this.dataModel = dataModel;
+
+        setCellSelectionEnabled(true);
+        setSelectionMode(SelectionMode.MULTIPLE);
+
+        selectionModel.getSelectedIndices().addListener(selectedCells::indicesChanged);
+    }
+
+    private int toItemIndex(int row, TableColumnBase<TableDataRowModel<T>, ?> column) {
+        if (!(column instanceof DynamicTableColumn) || row < 0) {
+            return -1;
+        }
+
+        int index = row * dataModel.getColumnCount() + ((DynamicTableColumn<?>) column).columnIndex;
+        return index < dataModel.getItemCount() ? index : -1;
+    }
+
+    private TablePosition<TableDataRowModel<T>, ?> toPosition(int itemIndex) {
+        int columnCount = Math.max(1, dataModel.getColumnCount());
+        int row = itemIndex / columnCount;
+        int column = itemIndex - row * columnCount;
+
+        var columns = getTableView().getColumns();
+        return new TablePosition<>(getTableView(), row, column < columns.size() ? columns.get(column) : null);
+    }
+
+    @Override
+    public ObservableList<TablePosition> getSelectedCells() {
+        return selectedCells;
+    }
+
+    @Override
+    public boolean isSelected(int row, TableColumn<TableDataRowModel<T>, ?> column) {
+        int index = toItemIndex(row, column);
+        return 0 <= index && selectionModel.isSelected(index);
+    }
+
+    @Override
+    public void select(int row, TableColumn<TableDataRowModel<T>, ?> column) {
+        int index = toItemIndex(row, column);
+        if (0 <= index) {
+            selectionModel.select(index);
+        }
+    }
+
+    @Override
+    public void clearAndSelect(int row, TableColumn<TableDataRowModel<T>, ?> column) {
+        int index = toItemIndex(row, column);
+        if (0 <= index) {
+            selectionModel.clearAndSelect(index);
+        }
+    }
+
+    @Override
+    public void clearSelection(int row, TableColumn<TableDataRowModel<T>, ?> column) {
+        int index = toItemIndex(row, column);
+        if (0 <= index) {
+            selectionModel.clearSelection(index);
+        }
+    }
+
+    /**
+     * 指定のセルの間にある要素を、要素インデックスの順に選択する。
+     */
+    @Override
+    public void selectRange(int minRow, TableColumnBase<TableDataRowModel<T>, ?> minColumn,
+                            int maxRow, TableColumnBase<TableDataRowModel<T>, ?> maxColumn) {
+        int from = toItemIndex(minRow, minColumn);
+        int to = toItemIndex(maxRow, maxColumn);
+        if (from < 0 || to < 0) {
+            return;
+        }
+
+        if (from <= to) {
+            selectionModel.selectRange(from, to + 1);
+        } else {
+            selectionModel.selectRange(from, to - 1);
+        }
+    }
+
+    private void selectRelative(int offset) {
+        int index = selectionModel.getSelectedIndex();
+        if (index < 0) {
+            return;
+        }
+
+        int next = index + offset;
+        if (0 <= next && next < dataModel.getItemCount()) {
+            selectionModel.select(next);
+        }
+    }
+
+    @Override
+    public void selectLeftCell() {
+        selectRelative(-1);
+    }
+
+    @Override
+    public void selectRightCell() {
+        selectRelative(1);
+    }
+
+    @Override
+    public void selectAboveCell() {
+        selectRelative(-dataModel.getColumnCount());
+    }
+
+    @Override
+    public void selectBelowCell() {
+        selectRelative(dataModel.getColumnCount());
+    }
+
+    @Override
+    public void selectAll() {
+        selectionModel.selectAll();
+    }
+
+    @Override
+    public void clearSelection() {
+        selectionModel.clearSelection();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return selectionModel.isEmpty();
+    }
+
+    /**
+     * 選択されている要素の位置を返すビュー
+     */
+    private class SelectedCells extends ObservableListBase<TablePosition> {
+
+        @Override
+        public TablePosition get(int index) {
+            return toPosition(selectionModel.getSelectedIndices().get(index));
+        }
+
+        @Override
+        public int size() {
+            return selectionModel.getSelectedIndices().size();
+        }
+
+        /**
+         * 選択されている要素インデックスの変更を、位置の変更として通知する。
+         */
+        private void indicesChanged(ListChangeListener.Change<? extends Integer> c) {
+            var builder = new RangeListChange.Builder<TablePosition>();
+            while (c.next()) {
+                List<? extends Integer> removed = c.getRemoved();
+                List<TablePosition> positions = removed.isEmpty() ? List.of() : new AbstractList<TablePosition>() {
+                    @Override
+                    public TablePosition get(int index) {
+                        return toPosition(removed.get(index));
+                    }
+
+                    @Override
+                    public int size() {
+                        return removed.size();
+                    }
+                };
+
+                if (c.wasReplaced()) {
+                    builder.replaced(c.getFrom(), c.getTo(), positions);
+                } else if (c.wasRemoved()) {
+                    builder.removed(c.getFrom(), positions);
+                } else if (c.wasAdded()) {
+                    builder.added(c.getFrom(), c.getTo());
+                }
+            }
+
+            if (!builder.isEmpty()) {
+                fireChange(builder.build(this));
+            }
+        }
+    }
+}
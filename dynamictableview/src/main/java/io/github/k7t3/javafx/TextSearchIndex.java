@@ -0,0 +1,442 @@
+package io.github.k7t3.javafx;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 要素の文字列から部分一致で要素を探すための索引。
+ * <p>
+ *     要素から取り出した文字列を小文字にし、3文字ずつの部分文字列(トライグラム)から要素への対応を保持する。
+ *     検索するときは検索文字列のトライグラムを含む要素だけを調べるため、
+ *     検索にかかる時間は要素の総数ではなく候補となる要素の数に比例する。
+ *     3文字に満たない検索文字列は、索引に登録されているすべての文字列を調べる。
+ * </p>
+ * <p>
+ *     {@link DynamicTableView#setSearchIndex(TextSearchIndex)}で割り当てると
+ *     {@link DynamicTableView#getItems()}の変更に合わせて索引を更新し、
+ *     {@link DynamicTableView#search(String)}で{@link DynamicTableView#getFilteredItems()}を絞り込めるようになる。
+ *     要素から文字列を取り出す処理はFXアプリケーションスレッドで行い、索引の作成と更新、検索は
+ *     {@link DynamicTableView#getExecutor()}で順番に行う。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+public class TextSearchIndex<T> {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final Function<? super T, String> textExtractor;
+
+    private final ListChangeListener<T> itemsListener = this::itemsChanged;
+
+    private ObservableList<T> items;
+
+    private Executor worker;
+
+    /**
+     * 要素リストの変更の回数。FXアプリケーションスレッドでだけ参照する。
+     */
+    private int modCount = 0;
+
+    /*
+     * 以下はworkerのスレッドでだけ参照する
+     */
+
+    private final Map<String, Set<T>> postings = new HashMap<>();
+
+    private final Map<T, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * 索引を作成する。
+     * @param textExtractor 要素から検索の対象とする文字列を返す関数
+     */
+    public TextSearchIndex(Function<? super T, String> textExtractor) {
+        this.textExtractor = Objects.requireNonNull(textExtractor);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private String textOf(T item) {
+        return normalize(textExtractor.apply(item));
+    }
+
+    /**
+     * 要素リストを割り当て、索引を作り直す。
+     * @param newItems 要素リスト
+     * @param executor 索引の作成に使うExecutor。最初に割り当てたときだけ使われる。
+     */
+    void attach(ObservableList<T> newItems, Executor executor) {
+        detach();
+
+        // 索引を操作する処理が並行して行われないように、同じworkerを使い続ける
+        if (worker == null) {
+            worker = new SerialExecutor(executor);
+        }
+
+        items = newItems;
+        modCount++;
+
+        if (newItems == null) {
+            return;
+        }
+        newItems.addListener(itemsListener);
+
+        var update = new Update<T>();
+        update.added(newItems, this);
+        worker.execute(() -> apply(update));
+    }
+
+    /**
+     * 要素リストの監視をやめ、索引を破棄する。
+     */
+    void detach() {
+        if (items != null) {
+            items.removeListener(itemsListener);
+            items = null;
+        }
+        if (worker != null) {
+            worker.execute(this::clear);
+        }
+        modCount++;
+    }
+
+    private void itemsChanged(ListChangeListener.Change<? extends T> c) {
+        modCount++;
+
+        var update = new Update<T>();
+        while (c.next()) {
+            if (c.wasPermutated()) {
+                continue;
+            }
+
+            if (c.wasUpdated()) {
+                for (int i = c.getFrom(); i < c.getTo(); i++) {
+                    var item = c.getList().get(i);
+                    update.updated.add(item);
+                    update.updatedTexts.add(textOf(item));
+                }
+                continue;
+            }
+
+            if (c.wasRemoved()) {
+                update.removed.addAll(c.getRemoved());
+            }
+            if (c.wasAdded()) {
+                update.added(c.getAddedSubList(), this);
+            }
+        }
+
+        if (!update.isEmpty()) {
+            worker.execute(() -> apply(update));
+        }
+    }
+
+    private static List<String> gramsOf(String text) {
+        if (text.length() < GRAM_LENGTH) {
+            return List.of();
+        }
+        var grams = new ArrayList<String>(text.length() - GRAM_LENGTH + 1);
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private void apply(Update<T> update) {
+        for (var item : update.removed) {
+            remove(item);
+        }
+        for (int i = 0; i < update.added.size(); i++) {
+            add(update.added.get(i), update.addedTexts.get(i));
+        }
+        for (int i = 0; i < update.updated.size(); i++) {
+            replace(update.updated.get(i), update.updatedTexts.get(i));
+        }
+    }
+
+    private void add(T item, String text) {
+        var entry = entries.get(item);
+        if (entry != null) {
+            // 同じ要素が複数含まれているときは数だけを数える
+            entry.count++;
+            return;
+        }
+
+        entries.put(item, new Entry(text));
+        addPostings(item, text);
+    }
+
+    private void remove(T item) {
+        var entry = entries.get(item);
+        if (entry == null || 0 < --entry.count) {
+            return;
+        }
+
+        entries.remove(item);
+        removePostings(item, entry.text);
+    }
+
+    private void replace(T item, String text) {
+        var entry = entries.get(item);
+        if (entry == null || entry.text.equals(text)) {
+            return;
+        }
+
+        removePostings(item, entry.text);
+        entry.text = text;
+        addPostings(item, text);
+    }
+
+    private void addPostings(T item, String text) {
+        for (var gram : gramsOf(text)) {
+            postings.computeIfAbsent(gram, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(item);
+        }
+    }
+
+    private void removePostings(T item, String text) {
+        for (var gram : gramsOf(text)) {
+            var posting = postings.get(gram);
+            if (posting != null) {
+                posting.remove(item);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        postings.clear();
+        entries.clear();
+    }
+
+    /**
+     * 検索文字列を含む要素を索引から探す。
+     */
+    private Set<T> find(String query) {
+        Set<T> matches = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        if (query.length() < GRAM_LENGTH) {
+            for (var entry : entries.entrySet()) {
+                if (entry.getValue().text.contains(query)) {
+                    matches.add(entry.getKey());
+                }
+            }
+            return matches;
+        }
+
+        var candidates = new ArrayList<Set<T>>();
+        for (var gram : gramsOf(query)) {
+            var posting = postings.get(gram);
+            if (posting == null) {
+                return matches;
+            }
+            candidates.add(posting);
+        }
+        candidates.sort(Comparator.comparingInt(Set::size));
+
+        // 最も小さい候補から、すべてのトライグラムを含み検索文字列を含む要素を選ぶ
+        var smallest = candidates.get(0);
+        var others = candidates.subList(1, candidates.size());
+        for (var item : smallest) {
+            if (containsAll(others, item) && entries.get(item).text.contains(query)) {
+                matches.add(item);
+            }
+        }
+        return matches;
+    }
+
+    private static <T> boolean containsAll(List<Set<T>> sets, T item) {
+        for (var set : sets) {
+            if (!set.contains(item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 検索文字列を含む要素をバックグラウンドで探す。FXアプリケーションスレッドから呼び出すこと。
+     * @param query 検索文字列
+     * @return 検索結果
+     */
+    CompletableFuture<SearchResult<T>> search(String query) {
+        if (items == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("index is not attached"));
+        }
+
+        var normalized = normalize(query);
+        var list = items;
+        int count = modCount;
+        return CompletableFuture.supplyAsync(() -> new SearchResult<>(this, list, count, normalized, find(normalized)), worker);
+    }
+
+    private static final class Entry {
+
+        private String text;
+
+        private int count = 1;
+
+        Entry(String text) {
+            this.text = text;
+        }
+    }
+
+    /**
+     * FXアプリケーションスレッドで取り出した、索引に反映する変更
+     */
+    private static final class Update<T> {
+
+        private final List<T> removed = new ArrayList<>();
+
+        private final List<T> added = new ArrayList<>();
+
+        private final List<String> addedTexts = new ArrayList<>();
+
+        private final List<T> updated = new ArrayList<>();
+
+        private final List<String> updatedTexts = new ArrayList<>();
+
+        void added(List<? extends T> items, TextSearchIndex<T> index) {
+            for (var item : items) {
+                added.add(item);
+                addedTexts.add(index.textOf(item));
+            }
+        }
+
+        boolean isEmpty() {
+            return removed.isEmpty() && added.isEmpty() && updated.isEmpty();
+        }
+    }
+
+    /**
+     * 検索結果
+     * @param <T> 取り扱うデータタイプ
+     */
+    static final class SearchResult<T> {
+
+        private final TextSearchIndex<T> index;
+
+        private final ObservableList<T> items;
+
+        private final int modCount;
+
+        private final String query;
+
+        private final Set<T> matches;
+
+        SearchResult(TextSearchIndex<T> index, ObservableList<T> items, int modCount, String query, Set<T> matches) {
+            this.index = index;
+            this.items = items;
+            this.modCount = modCount;
+            this.query = query;
+            this.matches = matches;
+        }
+
+        int size() {
+            return matches.size();
+        }
+
+        /**
+         * 検索してから要素リストが変更されていないかを返す。FXアプリケーションスレッドから呼び出すこと。
+         */
+        boolean isValid() {
+            return index.items == items && index.modCount == modCount;
+        }
+
+        /**
+         * 検索結果でリストを絞り込む。FXアプリケーションスレッドから呼び出すこと。
+         * <p>
+         *     検索結果を参照するのは絞り込むときだけで、その後に追加や更新された要素は
+         *     要素の文字列を直接調べる。
+         * </p>
+         */
+        void apply(FilteredList<T> filteredItems) {
+            var predicate = new SearchPredicate<>(index, query, matches);
+            filteredItems.setPredicate(predicate);
+            predicate.release();
+        }
+    }
+
+    private static final class SearchPredicate<T> implements Predicate<T> {
+
+        private final TextSearchIndex<T> index;
+
+        private final String query;
+
+        private Set<T> matches;
+
+        SearchPredicate(TextSearchIndex<T> index, String query, Set<T> matches) {
+            this.index = index;
+            this.query = query;
+            this.matches = matches;
+        }
+
+        @Override
+        public boolean test(T item) {
+            if (matches != null) {
+                return matches.contains(item);
+            }
+            return index.textOf(item).contains(query);
+        }
+
+        void release() {
+            matches = null;
+        }
+    }
+
+    /**
+     * 渡された処理を一つずつ順番に実行するExecutor
+     */
+    private static final class SerialExecutor implements Executor {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private final Executor executor;
+
+        private Runnable active;
+
+        SerialExecutor(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public synchronized void execute(Runnable task) {
+            tasks.offer(() -> {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            });
+            if (active == null) {
+                scheduleNext();
+            }
+        }
+
+        private synchronized void scheduleNext() {
+            if ((active = tasks.poll()) != null) {
+                executor.execute(active);
+            }
+        }
+    }
+}
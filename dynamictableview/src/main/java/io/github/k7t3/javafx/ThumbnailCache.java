@@ -0,0 +1,244 @@
+package io.github.k7t3.javafx;
+
+import javafx.scene.image.Image;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * セルの大きさに縮小して読み込んだ画像を保持するキャッシュ。
+ * <p>
+ *     画像は指定された大きさに縮小しながらバックグラウンドで読み込むため、元の解像度の画像はメモリに残らない。
+ *     保持している画像の画素のバイト数の合計が上限を超えると、最も長い間使われていない画像から破棄する。
+ *     そのため使用するメモリは要素の数ではなくキャッシュの大きさで決まる。
+ * </p>
+ * <p>
+ *     保持している画像の大きさと要求された大きさが{@link #RESIZE_TOLERANCE}の割合を超えて異なるときは、
+ *     要求された大きさで読み込み直す。セルの幅を大きく変えたときは、表示されたセルから順に読み込み直される。
+ * </p>
+ * <pre>{@code
+ * protected CompletionStage<Image> loadAsync(Photo item) {
+ *     return cache.load(item.getUrl(), getPrefCellWidth(), getPrefCellHeight());
+ * }
+ * }</pre>
+ * @see AsyncDynamicTableCell
+ */
+public class ThumbnailCache {
+
+    /**
+     * 保持している画像を使い続ける、要求された大きさとの差の割合
+     */
+    public static final double RESIZE_TOLERANCE = 0.25;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final long maxBytes;
+
+    private final Executor executor;
+
+    /**
+     * 最も長い間使われていない順に並べた画像
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 読み込み中の画像
+     */
+    private final Map<String, Pending> pending = new HashMap<>();
+
+    private long totalBytes = 0;
+
+    /**
+     * {@link DynamicTableView}の既定のスレッドプールで読み込むキャッシュを作成する。
+     * @param maxBytes 保持する画像の画素のバイト数の合計の上限
+     */
+    public ThumbnailCache(long maxBytes) {
+        this(maxBytes, DynamicTableView.getDefaultExecutor());
+    }
+
+    /**
+     * キャッシュを作成する。
+     * @param maxBytes 保持する画像の画素のバイト数の合計の上限
+     * @param executor 画像の読み込みに使うExecutor
+     */
+    public ThumbnailCache(long maxBytes, Executor executor) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        this.maxBytes = maxBytes;
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    private static double normalize(double size) {
+        return 0 < size ? Math.ceil(size) : 0;
+    }
+
+    private static boolean fits(double actual, double requested) {
+        if (requested == 0 || actual == 0) {
+            return requested == actual;
+        }
+        return Math.abs(actual - requested) <= requested * RESIZE_TOLERANCE;
+    }
+
+    /**
+     * 指定の大きさに収まるように縮小した画像を返す。保持していないときはバックグラウンドで読み込む。
+     * @param url 画像のURL
+     * @param width 画像を収める幅。0以下のときは幅を制限しない
+     * @param height 画像を収める高さ。0以下のときは高さを制限しない
+     * @return 画像。読み込みに失敗したときは例外で完了する
+     */
+    public synchronized CompletableFuture<Image> load(String url, double width, double height) {
+        Objects.requireNonNull(url);
+
+        double w = normalize(width);
+        double h = normalize(height);
+
+        var entry = entries.get(url);
+        if (entry != null && fits(entry.width, w) && fits(entry.height, h)) {
+            return CompletableFuture.completedFuture(entry.image);
+        }
+
+        var loading = pending.get(url);
+        if (loading != null && fits(loading.width, w) && fits(loading.height, h)) {
+            return loading.future.thenApply(image -> image);
+        }
+
+        var future = new CompletableFuture<Image>();
+        var request = new Pending(w, h, future);
+        pending.put(url, request);
+
+        executor.execute(() -> {
+            try {
+                var image = new Image(url, w, h, true, true, false);
+                if (image.isError()) {
+                    var error = image.getException();
+                    throw error != null ? error : new IllegalStateException("failed to load " + url);
+                }
+                completed(url, request, image);
+                future.complete(image);
+            } catch (Throwable e) {
+                failed(url, request);
+                future.completeExceptionally(e);
+            }
+        });
+
+        // キャンセルされても読み込み自体は続け、他の呼び出し元とキャッシュのために結果を残す
+        return future.thenApply(image -> image);
+    }
+
+    /**
+     * 保持している画像を返す。大きさは考慮しない。
+     * @param url 画像のURL
+     * @return 画像。保持していないときはnull
+     */
+    public synchronized Image getIfPresent(String url) {
+        var entry = entries.get(url);
+        return entry == null ? null : entry.image;
+    }
+
+    private synchronized void completed(String url, Pending request, Image image) {
+        if (pending.get(url) == request) {
+            pending.remove(url);
+        }
+
+        var bytes = (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL;
+        if (maxBytes < bytes) {
+            return;
+        }
+
+        var old = entries.put(url, new Entry(image, request.width, request.height, bytes));
+        if (old != null) {
+            totalBytes -= old.bytes;
+        }
+        totalBytes += bytes;
+
+        evict();
+    }
+
+    private synchronized void failed(String url, Pending request) {
+        if (pending.get(url) == request) {
+            pending.remove(url);
+        }
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (maxBytes < totalBytes && iterator.hasNext()) {
+            totalBytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 指定の画像を破棄する。
+     * @param url 画像のURL
+     */
+    public synchronized void invalidate(String url) {
+        var entry = entries.remove(url);
+        if (entry != null) {
+            totalBytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * すべての画像を破棄する。
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    /**
+     * 保持している画像の画素のバイト数の合計を返す。
+     * @return 保持している画像の画素のバイト数の合計
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * 保持している画像の数を返す。
+     * @return 保持している画像の数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+
+        private final Image image;
+
+        private final double width;
+
+        private final double height;
+
+        private final long bytes;
+
+        Entry(Image image, double width, double height, long bytes) {
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Pending {
+
+        private final double width;
+
+        private final double height;
+
+        private final CompletableFuture<Image> future;
+
+        Pending(double width, double height, CompletableFuture<Image> future) {
+            this.width = width;
+            this.height = height;
+            this.future = future;
+        }
+    }
+}
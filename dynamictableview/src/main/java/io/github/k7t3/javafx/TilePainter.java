@@ -0,0 +1,27 @@
+package io.github.k7t3.javafx;
+
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * {@link RenderMode#CANVAS}で、要素を一つのタイルとしてキャンバスに描画する処理。
+ * <p>
+ *     {@link DynamicTableView#setTilePainter(TilePainter)}で割り当てると、表示されているタイルのうち
+ *     内容や選択状態が変わったものだけについてFXアプリケーションスレッドから呼び出される。
+ *     {@link GraphicsContext}はタイルの左上が原点になるよう移動されており、呼び出す前にタイルの範囲は消去されている。
+ *     タイルの範囲の外には描画しないこと。
+ * </p>
+ * @param <T> 取り扱うデータタイプ
+ */
+@FunctionalInterface
+public interface TilePainter<T> {
+
+    /**
+     * 要素をタイルに描画する。
+     * @param gc 描画先。タイルの左上が原点になっている
+     * @param item 要素
+     * @param width タイルの幅
+     * @param height タイルの高さ
+     * @param selected 要素が選択されているときはtrue
+     */
+    void paint(GraphicsContext gc, T item, double width, double height, boolean selected);
+}
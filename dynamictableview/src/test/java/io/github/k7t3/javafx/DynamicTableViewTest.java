@@ -1,14 +1,41 @@
 package io.github.k7t3.javafx;
 
+import javafx.beans.Observable;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ModifiableObservableListBase;
+import javafx.scene.Node;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.junit.jupiter.api.Test;
 import org.testfx.api.FxAssert;
 import org.testfx.framework.junit5.ApplicationTest;
 import org.testfx.matcher.control.LabeledMatchers;
+import org.testfx.util.WaitForAsyncUtils;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -44,39 +71,39 @@ class DynamicTableViewTest extends ApplicationTest {
                 "seventh", "eighth", "ninth",
                 "tenth"
         );
-        table.getItems().setAll(items);
+        interact(() -> table.getItems().setAll(items));
 
-        selectionModel.selectAll();
+        interact(() -> selectionModel.selectAll());
         assertIterableEquals(items, selectionModel.getSelectedItems());
-        selectionModel.clearSelection();
+        interact(() -> selectionModel.clearSelection());
 
-        selectionModel.select(1);
+        interact(() -> selectionModel.select(1));
 
         assertEquals(items.get(1), selectionModel.getSelectedItem());
 
-        selectionModel.select(2);
+        interact(() -> selectionModel.select(2));
         assertEquals(items.get(2), selectionModel.getSelectedItem());
 
         assertEquals(2, selectionModel.getSelectedItems().size());
 
-        selectionModel.clearSelection();
+        interact(() -> selectionModel.clearSelection());
         assertTrue(selectionModel.isEmpty());
 
-        selectionModel.select("fifth");
+        interact(() -> selectionModel.select("fifth"));
 
-        selectionModel.selectPrevious();
+        interact(() -> selectionModel.selectPrevious());
         assertEquals("forth", selectionModel.getSelectedItem());
 
-        selectionModel.selectPrevious();
+        interact(() -> selectionModel.selectPrevious());
         assertEquals("third", selectionModel.getSelectedItem());
 
-        selectionModel.clearSelection();
+        interact(() -> selectionModel.clearSelection());
 
-        selectionModel.select("fifth");
-        selectionModel.selectNext();
+        interact(() -> selectionModel.select("fifth"));
+        interact(() -> selectionModel.selectNext());
         assertEquals("sixth", selectionModel.getSelectedItem());
 
-        selectionModel.selectNext();
+        interact(() -> selectionModel.selectNext());
         assertEquals("seventh", selectionModel.getSelectedItem());
 
         System.out.println("done");
@@ -87,14 +114,1157 @@ class DynamicTableViewTest extends ApplicationTest {
         var selectionModel = table.getSelectionModel();
 
         var items = List.of("item");
-        table.getItems().setAll(items);
+        interact(() -> table.getItems().setAll(items));
 
-        selectionModel.select(0);
+        interact(() -> selectionModel.select(0));
 
         assertEquals("item", selectionModel.getSelectedItem());
 
-        table.getItems().clear();
+        interact(() -> table.getItems().clear());
 
         assertTrue(selectionModel.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testSortKeepsSelection() {
+        var selectionModel = table.getSelectionModel();
+
+        interact(() -> table.getItems().setAll("c", "a", "b"));
+        interact(() -> selectionModel.select("a"));
+
+        interact(() -> table.getSortedItems().setComparator(Comparator.naturalOrder()));
+
+        assertEquals("a", selectionModel.getSelectedItem());
+        assertEquals(0, selectionModel.getSelectedIndex());
+    }
+
+    @Test
+    public void testLoadItemsAsync() throws Exception {
+        var items = IntStream.range(0, 10000).mapToObj(i -> "item" + i).collect(Collectors.toList());
+
+        var task = interact(() -> table.loadItemsAsync(items.stream()));
+
+        assertEquals(items.size(), task.get(10, TimeUnit.SECONDS));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertEquals(items.size() + 4, table.getItems().size());
+        assertEquals(items.get(items.size() - 1), table.getItems().get(table.getItems().size() - 1));
+    }
+
+    @Test
+    public void testLoadItemsAsyncFailure() {
+        var rejecting = new ModifiableObservableListBase<String>() {
+            @Override
+            public String get(int index) {
+                throw new IndexOutOfBoundsException(index);
+            }
+
+            @Override
+            public int size() {
+                return 0;
+            }
+
+            @Override
+            protected void doAdd(int index, String element) {
+                throw new IllegalStateException("rejected");
+            }
+
+            @Override
+            protected String doSet(int index, String element) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected String doRemove(int index) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        interact(() -> table.setItems(rejecting));
+
+        // 要素の追加に失敗したときは、待ち続けずにタスクが失敗する
+        var task = interact(() -> table.loadItemsAsync(Stream.of("a", "b")));
+        var e = assertThrows(ExecutionException.class, () -> task.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testFilterAsync() throws Exception {
+        var items = IntStream.range(0, 10000).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        interact(() -> table.getItems().setAll(items));
+
+        // 後から開始したフィルタだけが反映される
+        var stale = interact(() -> table.filterAsync(s -> s.endsWith("1")));
+        var task = interact(() -> table.filterAsync(s -> s.endsWith("7")));
+        assertTrue(stale.isCancelled());
+        assertTrue(table.isFiltering());
+
+        assertEquals(1000, task.get(10, TimeUnit.SECONDS));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertFalse(table.isFiltering());
+        assertEquals(1000, table.getFilteredItems().size());
+
+        // 反映した後に追加された要素は通常どおり評価される
+        interact(() -> table.getItems().addAll("x7", "x8"));
+        assertEquals(1001, table.getFilteredItems().size());
+    }
+
+    @Test
+    public void testRefineFilter() {
+        var items = IntStream.range(0, 1000).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        interact(() -> table.getItems().setAll(items));
+
+        var tested = new int[1];
+        interact(() -> table.refineFilter(s -> s.startsWith("item1")));
+        assertEquals(111, table.getFilteredItems().size());
+
+        // 絞り込むときは現在表示されている要素だけが評価される
+        interact(() -> table.refineFilter(s -> {
+            tested[0]++;
+            return s.startsWith("item12");
+        }));
+        assertEquals(111, tested[0]);
+        assertEquals(11, table.getFilteredItems().size());
+
+        assertTrue(interact(() -> table.widenFilter()));
+        assertEquals(111, table.getFilteredItems().size());
+        assertEquals(111, tested[0]);
+
+        assertTrue(interact(() -> table.widenFilter()));
+        assertEquals(items.size(), table.getFilteredItems().size());
+        assertFalse(interact(() -> table.widenFilter()));
+    }
+
+    @Test
+    public void testSearchIndex() throws Exception {
+        var items = IntStream.range(0, 1000).mapToObj(i -> "Item" + i).collect(Collectors.toList());
+        interact(() -> table.getItems().setAll(items));
+
+        interact(() -> {
+            table.setSearchIndex(new TextSearchIndex<>(s -> s));
+            table.search("item12");
+        });
+        WaitForAsyncUtils.waitFor(10, TimeUnit.SECONDS, () -> table.getFilteredItems().size() == 11);
+
+        // 追加された要素は索引に反映され、絞り込んだ後に追加された要素も評価される
+        interact(() -> {
+            table.getItems().add("xITEM12");
+            table.search("em12");
+        });
+        WaitForAsyncUtils.waitFor(10, TimeUnit.SECONDS, () -> table.getFilteredItems().size() == 12);
+
+        interact(() -> table.getItems().add("item120x"));
+        assertEquals(13, table.getFilteredItems().size());
+
+        interact(() -> table.search(""));
+        assertEquals(items.size() + 2, table.getFilteredItems().size());
+    }
+
+    @Test
+    public void testCellPool() {
+        var created = new int[1];
+        interact(() -> {
+            table.setCellFactory(() -> {
+                created[0]++;
+                return new DefaultDynamicTableCell<>();
+            });
+            table.getItems().setAll(IntStream.range(0, 12).mapToObj(i -> "item" + i).collect(Collectors.toList()));
+            table.setCellWidth(50);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        interact(() -> table.setCellWidth(100));
+        WaitForAsyncUtils.waitForFxEvents();
+        int count = created[0];
+
+        // 列数が増えたときは取り外された列のセルが再利用される
+        interact(() -> table.setCellWidth(50));
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(count, created[0]);
+
+        // 再利用したセルはひとつの行にだけ取り付けられ、サイズもバインドし直されている
+        var cells = new IdentityHashMap<Node, Node>();
+        for (var row : table.lookupAll(".table-row-cell")) {
+            for (var child : ((Parent) row).getChildrenUnmodifiable()) {
+                if (child instanceof DynamicTableCell) {
+                    assertNull(cells.put(child, row));
+                    assertSame(row, child.getParent());
+                    assertTrue(((DynamicTableCell<?>) child).prefCellWidthWrapper().isBound());
+                }
+            }
+        }
+        assertFalse(cells.isEmpty());
+    }
+
+    @Test
+    public void testColumnPool() {
+        interact(() -> {
+            table.getItems().setAll(IntStream.range(0, 12).mapToObj(i -> "item" + i).collect(Collectors.toList()));
+            table.setCellWidth(50);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        var columns = new ArrayList<>(table.getTableView().getColumns());
+        assertEquals(6, columns.size());
+
+        // 取り外した列は保持され、列数が戻ったときに同じ列が取り付け直される
+        interact(() -> table.setCellWidth(100));
+        WaitForAsyncUtils.waitForFxEvents();
+        interact(() -> table.setCellWidth(50));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertIterableEquals(columns, table.getTableView().getColumns());
+
+        // 保持するセルの上限を超える列は破棄され、新しい列が作られる
+        interact(() -> {
+            table.setCellPoolSize(0);
+            table.setCellWidth(100);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+        interact(() -> table.setCellWidth(50));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        var reattached = table.getTableView().getColumns();
+        assertSame(columns.get(0), reattached.get(0));
+        assertNotSame(columns.get(5), reattached.get(5));
+    }
+
+    @Test
+    public void testPrefetcher() {
+        var prefetched = new ArrayList<String>();
+        interact(() -> {
+            table.getItems().setAll(IntStream.range(0, 100).mapToObj(i -> "item" + i).collect(Collectors.toList()));
+            table.setPrefetcher(item -> {
+                prefetched.add(item);
+                return null;
+            });
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // 表示されている行の先の行だけが準備される
+        assertFalse(prefetched.isEmpty());
+        assertFalse(prefetched.contains("item0"));
+        assertFalse(prefetched.contains("item99"));
+    }
+
+    @Test
+    public void testPrefetchUpward() throws Exception {
+        var prefetched = new ArrayList<String>();
+        interact(() -> {
+            table.getItems().setAll(IntStream.range(0, 300).mapToObj(i -> "item" + i).collect(Collectors.toList()));
+
+            // 簡易な表示には切り替えずに、スクロールが止まったら速さを忘れさせる
+            table.setFastScrollVelocity(Double.MAX_VALUE);
+            table.setPrefetcher(item -> {
+                prefetched.add(item);
+                return null;
+            });
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        interact(() -> table.scrollTo("item180"));
+        WaitForAsyncUtils.waitForFxEvents();
+        Thread.sleep(500);
+
+        // 以降は止まったとみなさないようにする
+        interact(() -> table.setFastScrollVelocity(0));
+
+        // 上にスクロールすると、表示されている行の上の行を準備する
+        interact(() -> table.scrollTo("item150"));
+        WaitForAsyncUtils.waitForFxEvents();
+        prefetched.clear();
+        interact(() -> table.scrollTo("item135"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertTrue(prefetched.contains("item134"));
+        assertTrue(prefetched.contains("item132"));
+        assertTrue(prefetched.stream().allMatch(item -> indexOf(item) < 135));
+
+        // 近い行から準備させる
+        assertEquals("item134", prefetched.get(0));
+    }
+
+    @Test
+    public void testPrefetchLookahead() throws Exception {
+        var prefetched = new ArrayList<String>();
+        interact(() -> table.getItems().setAll(IntStream.range(0, 300).mapToObj(i -> "item" + i).collect(Collectors.toList())));
+        WaitForAsyncUtils.waitForFxEvents();
+        interact(() -> table.setPrefetcher(item -> {
+            prefetched.add(item);
+            return null;
+        }));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // ゆっくりスクロールしているときは、prefetchRows行だけを準備する
+        Thread.sleep(1500);
+        interact(() -> table.scrollTo("item3"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertFalse(prefetched.isEmpty());
+        assertTrue(prefetched.stream().allMatch(item -> indexOf(item) < 30));
+
+        // 速くスクロールしているときは、速さに応じて先の行まで準備する
+        prefetched.clear();
+        interact(() -> table.scrollTo("item93"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertTrue(prefetched.contains("item138"));
+        assertTrue(prefetched.stream().allMatch(item -> 93 < indexOf(item)));
+    }
+
+    @Test
+    public void testPrefetchCancel() {
+        var futures = new HashMap<String, CompletableFuture<Void>>();
+        interact(() -> {
+            table.getItems().setAll(IntStream.range(0, 300).mapToObj(i -> "item" + i).collect(Collectors.toList()));
+            table.setPrefetcher(item -> {
+                var future = new CompletableFuture<Void>();
+                futures.put(item, future);
+                return future;
+            });
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        var near = new HashMap<>(futures);
+        assertFalse(near.isEmpty());
+
+        // 表示されないまま準備する範囲から外れた要素の準備はキャンセルする
+        interact(() -> table.scrollTo("item180"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertTrue(near.values().stream().allMatch(CompletableFuture::isCancelled));
+        futures.keySet().removeAll(near.keySet());
+        assertFalse(futures.isEmpty());
+        assertTrue(futures.values().stream().noneMatch(CompletableFuture::isCancelled));
+
+        // 表示された要素の準備はキャンセルしない
+        var ahead = new HashMap<>(futures);
+        interact(() -> table.scrollTo("item186"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        ahead.forEach((item, future) -> {
+            int index = indexOf(item);
+            if (index < 200) {
+                assertFalse(future.isCancelled(), item);
+            }
+        });
+    }
+
+    private static int indexOf(String item) {
+        return Integer.parseInt(item.substring("item".length()));
+    }
+
+    @Test
+    public void testFastScrolling() {
+        var skeletons = new ArrayList<String>();
+        var updates = new ArrayList<String>();
+        interact(() -> table.setCellFactory(() -> new DynamicTableCell<>() {
+            @Override
+            protected Node createView() {
+                return new Label();
+            }
+
+            @Override
+            protected void updateItem(String item) {
+                updates.add(item);
+            }
+
+            @Override
+            protected void updateSkeleton(String item) {
+                skeletons.add(item);
+            }
+        }));
+
+        interact(() -> {
+            var cell = table.createCell();
+            table.setFastScrolling(true);
+            cell.updateItem("item0", false);
+            cell.updateItem("item1", false);
+
+            // 速くスクロールしている間は簡易に表示する
+            assertEquals(List.of("item0", "item1"), skeletons);
+            assertTrue(updates.isEmpty());
+
+            // スクロールが止まると最後のアイテムだけを一度表示する
+            table.setFastScrolling(false);
+            assertEquals(List.of("item1"), updates);
+        });
+    }
+
+    @Test
+    public void testItemUpdate() {
+        var versions = new HashMap<String, IntegerProperty>();
+        var items = FXCollections.<String>observableArrayList(item -> new Observable[] { versions.get(item) });
+        var updated = new ArrayList<String>();
+        interact(() -> {
+            table.setCellFactory(() -> new DefaultDynamicTableCell<>() {
+                @Override
+                protected void updateItem(String item) {
+                    super.updateItem(item);
+                    updated.add(item);
+                }
+            });
+            for (int i = 0; i < 12; i++) {
+                versions.put("item" + i, new SimpleIntegerProperty());
+                items.add("item" + i);
+            }
+            table.setItems(items);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+        updated.clear();
+
+        // 要素のプロパティの変更は、その要素を表示しているセルだけに反映する
+        interact(() -> versions.get("item5").set(1));
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(List.of("item5"), updated);
+
+        // 同じパルスの間に何度更新されても、セルの更新は一度だけ
+        updated.clear();
+        interact(() -> {
+            for (int i = 2; i < 100; i++) {
+                versions.get("item5").set(i);
+            }
+            versions.get("item6").set(1);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(List.of("item5", "item6"), updated);
+    }
+
+    @Test
+    public void testDataProvider() {
+        var requested = new ArrayList<Integer>();
+        var provider = new DataProvider<String>() {
+            @Override
+            public CompletionStage<Integer> fetchCount() {
+                return CompletableFuture.completedFuture(100_000);
+            }
+
+            @Override
+            public CompletionStage<List<String>> fetchPage(int offset, int limit) {
+                requested.add(offset);
+                return CompletableFuture.completedFuture(IntStream.range(offset, offset + limit)
+                        .mapToObj(i -> "item" + i)
+                        .collect(Collectors.toList()));
+            }
+        };
+
+        interact(() -> {
+            table.setPageSize(100);
+            table.setMaxCachedPages(1);
+            table.setDataProvider(provider);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // 表示している範囲のページだけを読み込む
+        assertEquals(100_000, table.getItems().size());
+        assertEquals(List.of(0), requested);
+        assertEquals("item0", table.getItems().get(0));
+        assertNull(table.getItems().get(99_999));
+
+        // 上限を超えたページは破棄する
+        interact(() -> table.scrollToBottom());
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertTrue(requested.contains(99_900));
+        assertEquals("item99999", table.getItems().get(99_999));
+        assertNull(table.getItems().get(0));
+    }
+
+    @Test
+    public void testDataProviderLargeCount() {
+        int count = 5_000_000;
+        var requested = new ArrayList<Integer>();
+        var provider = new DataProvider<String>() {
+            @Override
+            public CompletionStage<Integer> fetchCount() {
+                return CompletableFuture.completedFuture(count);
+            }
+
+            @Override
+            public CompletionStage<List<String>> fetchPage(int offset, int limit) {
+                requested.add(offset);
+                return CompletableFuture.completedFuture(IntStream.range(offset, Math.min(count, offset + limit))
+                        .mapToObj(i -> "item" + i)
+                        .collect(Collectors.toList()));
+            }
+        };
+
+        interact(() -> {
+            table.setPageSize(100);
+            table.setDataProvider(provider);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // 読み込むリストを絞り込みと並び替えのリストを経由せずにそのまま表示する
+        assertEquals(count, table.getItems().size());
+        assertNull(table.getFilteredItems());
+        assertNull(table.getSortedItems());
+        assertSame(table.getItems(), table.getViewItems());
+        assertSame(table.getItems(), table.getDataModel().getItems());
+        assertEquals(List.of(0), requested);
+
+        // 絞り込みと並び替えはプロバイダが行うため何もしない
+        interact(() -> {
+            assertNull(table.filterAsync(s -> s.endsWith("0")));
+            assertNull(table.sortAsync(Comparator.reverseOrder()));
+        });
+        assertEquals(count, table.getItems().size());
+
+        interact(() -> {
+            table.getSelectionModel().select(count - 1);
+            table.scrollToBottom();
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertTrue(requested.contains(count - 100));
+        assertEquals("item" + (count - 1), table.getItems().get(count - 1));
+        assertEquals("item" + (count - 1), table.getSelectionModel().getSelectedItem());
+
+        // プロバイダを外すと通常の要素リストに戻る
+        interact(() -> table.setDataProvider(null));
+        assertNotNull(table.getSortedItems());
+        assertSame(table.getSortedItems(), table.getDataModel().getItems());
+    }
+
+    @Test
+    public void testDataProviderSelection() {
+        var provider = new DataProvider<String>() {
+            @Override
+            public CompletionStage<Integer> fetchCount() {
+                return CompletableFuture.completedFuture(100_000);
+            }
+
+            @Override
+            public CompletionStage<List<String>> fetchPage(int offset, int limit) {
+                return CompletableFuture.completedFuture(IntStream.range(offset, offset + limit)
+                        .mapToObj(i -> "item" + i)
+                        .collect(Collectors.toList()));
+            }
+        };
+
+        var selectionModel = table.getSelectionModel();
+        interact(() -> {
+            table.setKeyExtractor(item -> item.substring(4));
+            selectionModel.setRetainSelection(true);
+            table.setPageSize(100);
+            table.setMaxCachedPages(1);
+            table.setDataProvider(provider);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        interact(() -> {
+            selectionModel.selectAll();
+            selectionModel.select(1);
+        });
+
+        // ページの読み込みと破棄では選択状態が変わらない
+        interact(() -> table.scrollToBottom());
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertNull(table.getItems().get(0));
+        assertEquals(100_000, selectionModel.getSelectedIndices().size());
+        assertEquals(1, selectionModel.getSelectedIndex());
+
+        interact(() -> table.scrollToTop());
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertEquals("item1", selectionModel.getSelectedItem());
+        assertEquals(100_000, selectionModel.getSelectedIndices().size());
+    }
+
+    @Test
+    public void testSortAsync() throws Exception {
+        var items = IntStream.range(0, 10000).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        interact(() -> table.getItems().setAll(items));
+
+        var selectionModel = table.getSelectionModel();
+        interact(() -> selectionModel.select(0));
+
+        var permutations = new ArrayList<Boolean>();
+        table.getSortedItems().addListener((ListChangeListener<String>) c -> {
+            while (c.next()) {
+                permutations.add(c.wasPermutated());
+            }
+        });
+
+        var task = interact(() -> table.sortAsync(Comparator.reverseOrder()));
+        assertTrue(table.isSorting());
+
+        task.get(10, TimeUnit.SECONDS);
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertFalse(table.isSorting());
+        assertEquals("item9999", table.getSortedItems().get(0));
+
+        // 並び替えは要素の移動として通知され、選択状態も移動する
+        assertEquals("item0", selectionModel.getSelectedItem());
+        assertEquals(List.of(items.size() - 1), selectionModel.getSelectedIndices());
+        assertEquals(List.of(true), permutations);
+
+        // 反映したあとに追加された要素は比較関数で位置が決まる
+        interact(() -> table.getItems().addAll("item99999", "item5000a"));
+        assertEquals("item99999", table.getSortedItems().get(0));
+        assertEquals("item5000a", table.getSortedItems().get(table.getSortedItems().indexOf("item5000") - 1));
+        assertEquals("item0", table.getSortedItems().get(table.getSortedItems().size() - 1));
+    }
+
+    @Test
+    public void testFixedCellSize() {
+        interact(() -> {
+            table.setCellWidth(120);
+            table.setCellHeight(80);
+            table.setFixedCellSize(true);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // 行の高さと列の幅はコントロールの値をそのまま使う
+        assertEquals(80, table.getTableView().getFixedCellSize());
+        for (var column : table.getTableView().getColumns()) {
+            assertEquals(120, column.getPrefWidth());
+        }
+
+        var cell = interact(() -> table.createCell());
+        assertEquals(120, cell.getPrefCellWidth());
+        assertEquals(Region.USE_COMPUTED_SIZE, cell.getPrefWidth());
+
+        interact(() -> table.setFixedCellSize(false));
+        assertEquals(Region.USE_COMPUTED_SIZE, table.getTableView().getFixedCellSize());
+    }
+
+    @Test
+    public void testColumnCountHysteresis() {
+        var columnCounts = interact(() -> {
+            table.setColumnCountHysteresis(20);
+
+            // 300の境界の前後を行き来する
+            var counts = new ArrayList<Integer>();
+            for (double width : new double[] { 300, 295, 305, 285, 310, 281, 279, 290, 310, 319, 299, 321 }) {
+                table.resize(width, table.getHeight());
+                counts.add(table.getDataModel().getColumnCount());
+            }
+            return counts;
+        });
+
+        // 境界から幅の分だけ離れるまで列数は変わらない
+        assertEquals(List.of(3, 3, 3, 3, 3, 3, 2, 2, 2, 2, 2, 3), columnCounts);
+    }
+
+    @Test
+    public void testResizePerPulse() {
+        var changes = new ArrayList<Integer>();
+        interact(() -> {
+            table.setResizePolicy(ResizePolicy.PER_PULSE);
+            table.getDataModel().columnCountProperty().addListener((ob, o, n) -> changes.add(n.intValue()));
+
+            // レイアウトで幅が戻されないように、最後の幅を推奨サイズにしておく
+            table.setMaxWidth(Region.USE_PREF_SIZE);
+            table.setPrefWidth(180);
+
+            // 1パルスの間に境界を何度もまたぐ
+            for (double width : new double[] { 250, 150, 450, 180 }) {
+                table.resize(width, table.getHeight());
+            }
+            assertTrue(changes.isEmpty());
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // 最後の幅で一度だけ再計算する
+        assertEquals(List.of(1), changes);
+    }
+
+    @Test
+    public void testResizeDeferred() throws Exception {
+        var changedAt = new long[1];
+        interact(() -> {
+            table.setResizePolicy(ResizePolicy.DEFERRED);
+            table.setResizeIdleDelay(Duration.seconds(1));
+            table.getDataModel().columnCountProperty().addListener((ob, o, n) -> changedAt[0] = System.nanoTime());
+            table.setMaxWidth(Region.USE_PREF_SIZE);
+            table.setPrefWidth(180);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // 幅を変更している間は現在の列数のまま表示する
+        assertEquals(3, table.getDataModel().getColumnCount());
+
+        // 止まる前に幅を変えると待ち直す
+        Thread.sleep(500);
+        assertEquals(3, table.getDataModel().getColumnCount());
+        long resizedAt = interact(() -> {
+            table.setPrefWidth(190);
+            return System.nanoTime();
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(3, table.getDataModel().getColumnCount());
+
+        // 幅の変更が止まってから再計算する
+        WaitForAsyncUtils.waitFor(5, TimeUnit.SECONDS, () -> table.getDataModel().getColumnCount() == 1);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(changedAt[0] - resizedAt) >= 900);
+    }
+
+    @Test
+    public void testVirtualFlowRenderMode() {
+        interact(() -> table.setRenderMode(RenderMode.VIRTUAL_FLOW));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertNull(table.lookup(".table-view"));
+        assertFalse(table.lookupAll(".dynamic-grid-row").isEmpty());
+        FxAssert.verifyThat("." + DefaultDynamicTableCell.DEFAULT_TEXT_STYLE_CLASS, LabeledMatchers.hasText("this is test word"));
+
+        var selectionModel = table.getSelectionModel();
+        interact(() -> selectionModel.select(2));
+        assertEquals(2, selectionModel.getSelectedIndex());
+    }
+
+    @Test
+    public void testOverscan() {
+        var updated = new ArrayList<String>();
+        interact(() -> {
+            table.setCellFactory(() -> new DefaultDynamicTableCell<>() {
+                @Override
+                protected void updateItem(String item) {
+                    super.updateItem(item);
+                    updated.add(item);
+                }
+            });
+            table.setRenderMode(RenderMode.VIRTUAL_FLOW);
+            table.getItems().setAll(IntStream.range(0, 300).mapToObj(i -> "item" + i).collect(Collectors.toList()));
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // 表示されている行(0-3行目)の次の行のセルも用意されている
+        assertTrue(updated.containsAll(List.of("item12", "item13", "item14")));
+        assertFalse(updated.contains("item15"));
+
+        // スクロールして表示された行は、用意したセルをそのまま取り付ける
+        interact(() -> table.scrollTo("item12"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertEquals(1, updated.stream().filter("item12"::equals).count());
+        assertTrue(updated.contains("item15"));
+
+        var shown = table.lookupAll(".dynamic-grid-row").stream()
+                .flatMap(row -> ((Parent) row).getChildrenUnmodifiable().stream())
+                .filter(node -> node instanceof DynamicTableCell)
+                .map(node -> ((DynamicTableCell<?>) node).getItem())
+                .collect(Collectors.toList());
+        assertTrue(shown.contains("item12"));
+
+        // 0行のときは用意しない
+        interact(() -> table.setOverscan(0));
+        WaitForAsyncUtils.waitForFxEvents();
+        updated.clear();
+        interact(() -> table.scrollTo("item18"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertTrue(updated.contains("item18"));
+        assertFalse(updated.contains("item21"));
+    }
+
+    @Test
+    public void testCanvasRenderMode() {
+        var painted = new ArrayList<String>();
+        interact(() -> {
+            table.getItems().setAll(IntStream.range(0, 10000).mapToObj(i -> "item" + i).collect(Collectors.toList()));
+            table.setTilePainter((gc, item, width, height, selected) -> painted.add(item));
+            table.setRenderMode(RenderMode.CANVAS);
+        });
+        WaitForAsyncUtils.waitForFxEvents();
+
+        // セルは生成せず、表示されている範囲の要素だけを描画する
+        assertTrue(table.lookupAll(".dynamic-table-cell").isEmpty());
+        assertTrue(painted.contains("item0"));
+        assertFalse(painted.contains("item9999"));
+
+        // 位置から要素を求める
+        assertEquals("item1", table.getItemAt(150, 50));
+
+        // 選択が変わったタイルだけを描画し直す
+        painted.clear();
+        interact(() -> table.getSelectionModel().select(1));
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(List.of("item1"), painted);
+    }
+
+    @Test
+    public void testSelectRangeAndInvert() {
+        var selectionModel = table.getSelectionModel();
+
+        var items = IntStream.range(0, 10).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        interact(() -> table.getItems().setAll(items));
+
+        var changes = new int[1];
+        selectionModel.getSelectedIndices().addListener((ListChangeListener<Integer>) c -> changes[0]++);
+
+        interact(() -> selectionModel.selectRange(2, 6));
+        assertEquals(List.of(2, 3, 4, 5), selectionModel.getSelectedIndices());
+        assertEquals(items.subList(2, 6), selectionModel.getSelectedItems());
+        assertEquals(1, changes[0]);
+
+        interact(() -> selectionModel.invertSelection());
+        assertEquals(List.of(0, 1, 6, 7, 8, 9), selectionModel.getSelectedIndices());
+        assertEquals(2, changes[0]);
+
+        // 要素が削除されると後ろの選択位置が詰められる
+        interact(() -> table.getItems().remove(0, 2));
+        assertEquals(List.of(4, 5, 6, 7), selectionModel.getSelectedIndices());
+        assertEquals(items.subList(6, 10), selectionModel.getSelectedItems());
+
+        // 挿入された位置より後ろの選択だけが変更として通知される
+        var changedFrom = new ArrayList<Integer>();
+        var changedRemoved = new ArrayList<Integer>();
+        selectionModel.getSelectedIndices().addListener((ListChangeListener<Integer>) c -> {
+            while (c.next()) {
+                changedFrom.add(c.getFrom());
+                changedRemoved.addAll(c.getRemoved());
+            }
+        });
+        interact(() -> table.batch(() -> table.getItems().add(6, "x")));
+        assertEquals(List.of(4, 5, 7, 8), selectionModel.getSelectedIndices());
+        assertEquals(List.of(2), changedFrom);
+        assertEquals(List.of(6, 7), changedRemoved);
+    }
+
+    @Test
+    public void testBatchSelection() {
+        var selectionModel = table.getSelectionModel();
+
+        var items = IntStream.range(0, 10).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        interact(() -> {
+            table.getItems().setAll(items);
+            selectionModel.selectRange(4, 8);
+        });
+
+        var changes = new int[1];
+        var removed = new ArrayList<Integer>();
+        selectionModel.getSelectedIndices().addListener((ListChangeListener<Integer>) c -> {
+            changes[0]++;
+            while (c.next()) {
+                removed.addAll(c.getRemoved());
+            }
+        });
+
+        var indicesInBatch = new ArrayList<Integer>();
+        var changesInBatch = new int[1];
+        interact(() -> table.batch(() -> {
+            table.getItems().remove(0, 2);
+            table.getItems().remove(0);
+            indicesInBatch.addAll(selectionModel.getSelectedIndices());
+            changesInBatch[0] = changes[0];
+        }));
+
+        // 選択状態はすぐに補正されるが、通知は反映するときに一度だけ行われる
+        assertEquals(List.of(1, 2, 3, 4), indicesInBatch);
+        assertEquals(0, changesInBatch[0]);
+        assertEquals(1, changes[0]);
+        assertEquals(List.of(4, 5, 6, 7), removed);
+        assertEquals(items.subList(4, 8), selectionModel.getSelectedItems());
+
+        // まとめて通知された変更を順に当てはめると、変更後の選択状態になる
+        var mirroredIndices = new ArrayList<>(selectionModel.getSelectedIndices());
+        var mirroredItems = new ArrayList<>(selectionModel.getSelectedItems());
+        selectionModel.getSelectedIndices().addListener((ListChangeListener<Integer>) c -> mirror(mirroredIndices, c));
+        var itemChanges = new int[1];
+        selectionModel.getSelectedItems().addListener((ListChangeListener<String>) c -> {
+            itemChanges[0]++;
+            mirror(mirroredItems, c);
+        });
+
+        interact(() -> table.batch(() -> {
+            table.getItems().remove(2);
+            table.getItems().add(0, "new");
+            table.getItems().remove(table.getItems().size() - 1);
+        }));
+        assertEquals(1, itemChanges[0]);
+        assertEquals(List.of("item4", "item6", "item7"), selectionModel.getSelectedItems());
+        assertEquals(selectionModel.getSelectedItems(), mirroredItems);
+        assertEquals(selectionModel.getSelectedIndices(), mirroredIndices);
+    }
+
+    private static <E> void mirror(List<E> list, ListChangeListener.Change<? extends E> c) {
+        while (c.next()) {
+            list.subList(c.getFrom(), c.getFrom() + c.getRemovedSize()).clear();
+            list.addAll(c.getFrom(), c.getAddedSubList());
+        }
+    }
+
+    @Test
+    public void testRowIdentity() {
+        // 変更はパルスごとにまとめて反映されるため、batchでその場で反映させる
+        interact(() -> table.batch(() -> table.getItems().setAll(IntStream.range(0, 100_000).mapToObj(i -> "item" + i).collect(Collectors.toList()))));
+
+        var rows = table.getDataModel().getRows();
+        var first = rows.get(0);
+
+        // キャッシュから押し出されても、参照されている行は同じ行が返される
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i);
+        }
+        assertSame(first, rows.get(0));
+
+        // 削除された行は同じ行として通知され、範囲外の行は生成されない
+        var last = rows.get(rows.size() - 1);
+        var removed = new ArrayList<TableDataRowModel<String>>();
+        rows.addListener((ListChangeListener<TableDataRowModel<String>>) c -> {
+            while (c.next()) {
+                removed.addAll(c.getRemoved());
+            }
+        });
+        int size = table.getItems().size();
+        int lastRowItems = size - (rows.size() - 1) * table.getDataModel().getColumnCount();
+        interact(() -> table.batch(() -> table.getItems().remove(size - lastRowItems, size)));
+        assertSame(last, removed.get(removed.size() - 1));
+        assertSame(first, rows.get(0));
+    }
+
+    @Test
+    public void testReflow() {
+        interact(() -> table.getItems().setAll(IntStream.range(0, 300_000).mapToObj(i -> "item" + i).collect(Collectors.toList())));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        var dataModel = table.getDataModel();
+        var far = interact(() -> dataModel.getRows().get(50_000));
+        assertEquals("item150000", interact(() -> far.getProperty(0).getValue()));
+        int farVersion = far.getVersion();
+
+        // 先頭の要素を削除しても、表示されている行だけを更新する
+        interact(() -> table.getItems().remove(0));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        assertTrue(0 < dataModel.getLiveRowCount() && dataModel.getLiveRowCount() < 10);
+        var top = dataModel.getRows().get(0);
+        assertEquals(dataModel.getVersion(), top.getVersion());
+        assertEquals(farVersion, far.getVersion());
+        assertTrue(dataModel.isDirty(far));
+
+        // 表示されていない行は、次に参照されたときに更新される
+        assertEquals("item150001", interact(() -> far.getProperty(0).getValue()));
+        assertFalse(dataModel.isDirty(far));
+
+        interact(() -> table.scrollTo("item150004"));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        var shown = table.lookupAll(".table-row-cell").stream()
+                .filter(Node::isVisible)
+                .flatMap(row -> ((Parent) row).getChildrenUnmodifiable().stream())
+                .filter(node -> node instanceof DynamicTableCell)
+                .map(node -> ((DynamicTableCell<?>) node).getItem())
+                .collect(Collectors.toList());
+        assertTrue(shown.contains("item150004"));
+    }
+
+    @Test
+    public void testSlotResize() {
+        interact(() -> table.getItems().setAll(IntStream.range(0, 1000).mapToObj(i -> "item" + i).collect(Collectors.toList())));
+        WaitForAsyncUtils.waitForFxEvents();
+
+        var dataModel = table.getDataModel();
+        var row = interact(() -> dataModel.getRows().get(10));
+        var first = interact(() -> row.getProperty(0));
+        var third = interact(() -> row.getProperty(2));
+        assertEquals("item30", first.getValue());
+        assertEquals("item32", third.getValue());
+
+        // 列数が増えても、同じ行のプロパティのまま値が読み直される
+        interact(() -> table.setCellWidth(50));
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(6, dataModel.getColumnCount());
+
+        assertSame(row, dataModel.getRows().get(10));
+        assertSame(first, interact(() -> row.getProperty(0)));
+        assertEquals("item60", first.getValue());
+        assertEquals("item62", third.getValue());
+        assertEquals("item65", interact(() -> row.getProperty(5).getValue()));
+
+        // 列数が減ると、切り捨てた列のプロパティは空になる
+        interact(() -> table.setCellWidth(150));
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(2, dataModel.getColumnCount());
+
+        assertSame(first, interact(() -> row.getProperty(0)));
+        assertEquals("item20", first.getValue());
+        assertEquals("item21", interact(() -> row.getProperty(1).getValue()));
+        assertNull(third.getValue());
+    }
+
+    @Test
+    public void testIndexOf() {
+        interact(() -> table.getItems().setAll("a", "b", "c"));
+        assertEquals(1, table.indexOf("b"));
+        assertEquals(-1, table.indexOf("x"));
+
+        // 索引の位置は変更に合わせてずらされる
+        interact(() -> table.getItems().add(0, "x"));
+        assertEquals(0, table.indexOf("x"));
+        assertEquals(2, table.indexOf("b"));
+
+        interact(() -> table.getItems().remove("b"));
+        assertEquals(-1, table.indexOf("b"));
+        assertEquals(2, table.indexOf("c"));
+
+        interact(() -> table.getSelectionModel().select("c"));
+        assertEquals(2, table.getSelectionModel().getSelectedIndex());
+
+        // ずれの記録が多くなっても位置は正しい
+        interact(() -> {
+            for (int i = 0; i < 2000; i++) {
+                table.getItems().add(0, "n" + i);
+            }
+        });
+        assertEquals(2002, table.indexOf("c"));
+        assertEquals(1999, table.indexOf("n0"));
+        interact(() -> table.getItems().remove(0, 2000));
+        assertEquals(-1, table.indexOf("n0"));
+
+        // 並び替えられたときは新しい位置に移される
+        interact(() -> table.getSortedItems().setComparator(Comparator.reverseOrder()));
+        assertEquals(0, table.indexOf("x"));
+        assertEquals(1, table.indexOf("c"));
+        assertEquals(2, table.indexOf("a"));
+    }
+
+    @Test
+    public void testRetainSelection() {
+        var selectionModel = table.getSelectionModel();
+        interact(() -> selectionModel.setRetainSelection(true));
+
+        interact(() -> table.getItems().setAll("a1", "b1", "a2", "b2"));
+        interact(() -> selectionModel.selectIndices(0, 1));
+
+        // フィルタで取り除かれた要素は、再び表示されたときに選択し直される
+        interact(() -> table.getFilteredItems().setPredicate(s -> s.endsWith("2")));
+        assertTrue(selectionModel.isEmpty());
+
+        interact(() -> table.getFilteredItems().setPredicate(null));
+        assertEquals(List.of("a1", "b1"), selectionModel.getSelectedItems());
+
+        // キーが同じ要素に置き換えられても選択状態を保持する
+        interact(() -> table.setKeyExtractor(s -> s.charAt(1)));
+        interact(() -> table.setItems(FXCollections.observableArrayList("x2", "y1", "z3")));
+        assertEquals(List.of("y1"), selectionModel.getSelectedItems());
+
+        interact(() -> selectionModel.clearSelection());
+        interact(() -> table.getFilteredItems().setPredicate(s -> false));
+        interact(() -> table.getFilteredItems().setPredicate(null));
+        assertTrue(selectionModel.isEmpty());
+    }
+
+    @Test
+    public void testAsyncCell() {
+        var futures = new HashMap<String, CompletableFuture<String>>();
+        var applied = new ArrayList<String>();
+        var failed = new ArrayList<String>();
+        var cancellable = new boolean[] { true };
+        var cell = interact(() -> new AsyncDynamicTableCell<String, String>() {
+            @Override
+            protected Node createView() {
+                return new Label();
+            }
+
+            @Override
+            protected CompletionStage<String> loadAsync(String item) {
+                var future = new CompletableFuture<String>();
+                futures.put(item, future);
+                return cancellable[0] ? future : future.minimalCompletionStage();
+            }
+
+            @Override
+            protected void applyLoaded(String item, String loaded) {
+                applied.add(loaded);
+            }
+
+            @Override
+            protected void onLoadFailed(String item, Throwable error) {
+                failed.add(item);
+            }
+        });
+
+        // 読み込み中に別のアイテムに再利用されると、読み込みはキャンセルされる
+        interact(() -> {
+            cell.updateItem("item0", false);
+            cell.updateItem("item1", false);
+        });
+        assertTrue(futures.get("item0").isCancelled());
+        assertTrue(cell.isLoading());
+
+        interact(() -> futures.get("item1").complete("loaded1"));
+        assertEquals(List.of("loaded1"), applied);
+        assertTrue(failed.isEmpty());
+        assertFalse(cell.isLoading());
+
+        // キャンセルできない読み込みの結果が再利用されたあとに届いても反映しない
+        cancellable[0] = false;
+        interact(() -> {
+            cell.updateItem("item2", false);
+            cell.updateItem("item3", false);
+        });
+        interact(() -> futures.get("item2").complete("loaded2"));
+        assertEquals(List.of("loaded1"), applied);
+
+        // 別のスレッドで完了した結果はFXアプリケーションスレッドで反映する
+        futures.get("item3").complete("loaded3");
+        WaitForAsyncUtils.waitForFxEvents();
+        assertEquals(List.of("loaded1", "loaded3"), applied);
+        assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    public void testThumbnailCache() throws Exception {
+        var a = createImageFile(100, 100);
+        var b = createImageFile(100, 100);
+        var c = createImageFile(100, 100);
+        long bytes = 100 * 100 * 4;
+
+        // 要求された大きさとの差が許容範囲内なら、保持している画像を使い続ける
+        var cache = new ThumbnailCache(bytes * 2, Runnable::run);
+        var image = cache.load(a, 100, 100).get();
+        assertEquals(100, image.getWidth());
+        assertSame(image, cache.load(a, 110, 90).get());
+        var resized = cache.load(a, 50, 50).get();
+        assertNotSame(image, resized);
+        assertEquals(50, resized.getWidth());
+        assertEquals(1, cache.size());
+        assertEquals(50 * 50 * 4, cache.getTotalBytes());
+
+        // 上限を超えると、最も長い間使われていない画像から破棄する
+        cache.invalidateAll();
+        cache.load(a, 100, 100).get();
+        cache.load(b, 100, 100).get();
+        cache.load(a, 100, 100).get();
+        cache.load(c, 100, 100).get();
+        assertNotNull(cache.getIfPresent(a));
+        assertNull(cache.getIfPresent(b));
+        assertNotNull(cache.getIfPresent(c));
+        assertEquals(bytes * 2, cache.getTotalBytes());
+
+        // 読み込み中の画像は、大きさが許容範囲内の要求の間で共有する
+        var tasks = new ArrayList<Runnable>();
+        var pendingCache = new ThumbnailCache(bytes * 2, tasks::add);
+        var first = pendingCache.load(a, 100, 100);
+        var second = pendingCache.load(a, 105, 105);
+        assertEquals(1, tasks.size());
+        pendingCache.load(a, 50, 50);
+        assertEquals(2, tasks.size());
+
+        tasks.get(0).run();
+        assertSame(first.get(), second.get());
+    }
+
+    /**
+     * 指定の大きさの24ビットのBMP画像を一時ファイルに書き出し、そのURLを返す。
+     */
+    private static String createImageFile(int width, int height) throws IOException {
+        int rowSize = (width * 3 + 3) / 4 * 4;
+        int imageSize = rowSize * height;
+
+        var buffer = ByteBuffer.allocate(54 + imageSize).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'B').put((byte) 'M').putInt(54 + imageSize).putInt(0).putInt(54);
+        buffer.putInt(40).putInt(width).putInt(height).putShort((short) 1).putShort((short) 24)
+                .putInt(0).putInt(imageSize).putInt(2835).putInt(2835).putInt(0).putInt(0);
+
+        var file = Files.createTempFile("thumbnail", ".bmp");
+        file.toFile().deleteOnExit();
+        Files.write(file, buffer.array());
+        return file.toUri().toString();
+    }
+}
@@ -1,7 +1,8 @@
 package io.github.k7t3.javafx.sample;
 
-import io.github.k7t3.javafx.DynamicTableCell;
+import io.github.k7t3.javafx.AsyncDynamicTableCell;
 import io.github.k7t3.javafx.DynamicTableView;
+import io.github.k7t3.javafx.ThumbnailCache;
 import javafx.application.Application;
 import javafx.collections.ListChangeListener;
 import javafx.scene.Node;
@@ -17,6 +18,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
 public class ImageViewTestApp extends Application {
@@ -77,17 +79,14 @@ public class ImageViewTestApp extends Application {
             return name;
         }
 
-        private Image image;
-
-        public Image getImage() {
-            if (image == null) {
-                image = new Image(imageUrl, true);
-            }
-            return image;
+        public String getImageUrl() {
+            return imageUrl;
         }
     }
 
-    private static class BaseballTeamCell extends DynamicTableCell<BaseballTeam> {
+    private static class BaseballTeamCell extends AsyncDynamicTableCell<BaseballTeam, Image> {
+
+        private static final ThumbnailCache THUMBNAILS = new ThumbnailCache(64L * 1024 * 1024);
 
         public BaseballTeamCell() {
             super();
@@ -111,9 +110,20 @@ public class ImageViewTestApp extends Application {
         }
 
         @Override
-        protected void updateItem(BaseballTeam item) {
+        protected void onLoading(BaseballTeam item) {
             teamName.setText(item.getName());
-            teamImage.setImage(item.getImage());
+            teamImage.setImage(null);
+        }
+
+        @Override
+        protected CompletionStage<Image> loadAsync(BaseballTeam item) {
+            // 表示する大きさに縮小して読み込んだ画像を共有する
+            return THUMBNAILS.load(item.getImageUrl(), getPrefCellWidth() * 0.8, getPrefCellHeight() * 0.8);
+        }
+
+        @Override
+        protected void applyLoaded(BaseballTeam item, Image loaded) {
+            teamImage.setImage(loaded);
         }
     }
 }